@@ -2,45 +2,65 @@ package org.bosf.moondance.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
-
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
     private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
 
+    // Fed by ExtractionJobWorker, which only claims as many jobs as there are idle threads
     @Bean(name = "textExtractionExecutor")
-    public Executor textExtractionExecutor() {
+    public ThreadPoolTaskExecutor textExtractionExecutor(@Value("${app.extraction.concurrency}") int concurrency) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(0);
         executor.setThreadNamePrefix("TextExtract-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
 
-        executor.setRejectedExecutionHandler((r, e) -> {
-            log.warn("Text extraction task rejected, queue is full");
-        });
+        return executor;
+    }
 
+    // Runs the Tika parses so TextExtractionService can stop waiting on one that hangs. A parser that ignores
+    // the interrupt keeps its thread until it emits content again, hence the headroom over the worker count
+    @Bean(name = "tikaParseExecutor")
+    public ThreadPoolTaskExecutor tikaParseExecutor(@Value("${app.extraction.concurrency}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency * 4);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("TikaParse-");
+        // A hung parse must not hold up shutdown
+        executor.setDaemon(true);
         executor.initialize();
 
         return executor;
     }
 
+    // Also fed by ThumbnailSweeper, which only claims notes while the queue has room
     @Bean(name = "thumbnailExecutor")
-    public Executor thumbnailExecutor() {
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(4);
         executor.setQueueCapacity(50);
         executor.setThreadNamePrefix("Thumbnail-");
+
+        executor.setRejectedExecutionHandler((r, e) -> {
+            log.warn("Thumbnail task rejected, queue is full; the thumbnail sweep renders the note later");
+        });
+
         executor.initialize();
         
         return executor;
@@ -0,0 +1,99 @@
+package org.bosf.moondance.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bosf.moondance.security.UserPrincipalCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String SCHOOLS = "schools";
+    public static final String DEPARTMENTS_BY_SCHOOL = "departmentsBySchool";
+    public static final String COURSES_BY_SCHOOL = "coursesBySchool";
+    public static final String SESSIONS_BY_SCHOOL = "sessionsBySchool";
+    public static final String INSTRUCTORS_BY_SCHOOL = "instructorsBySchool";
+    public static final String POPULAR_TAGS = "popularTags";
+
+    public static final List<String> CATALOG_CACHES = List.of(
+            SCHOOLS,
+            DEPARTMENTS_BY_SCHOOL,
+            COURSES_BY_SCHOOL,
+            SESSIONS_BY_SCHOOL,
+            INSTRUCTORS_BY_SCHOOL
+    );
+
+    @Value("${app.cache.local-ttl-seconds}")
+    private long localTtlSeconds;
+
+    @Value("${app.cache.local-max-size}")
+    private long localMaxSize;
+
+    @Value("${app.cache.remote-ttl-seconds}")
+    private long remoteTtlSeconds;
+
+    @Value("${app.cache.popular-tags-ttl-seconds}")
+    private long popularTagsTtlSeconds;
+
+    @Value("${app.cache.remote-retry-seconds}")
+    private long remoteRetrySeconds;
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(
+        RedisConnectionFactory connectionFactory,
+        StringRedisTemplate redisTemplate,
+        MeterRegistry meterRegistry
+    ) {
+        TwoLevelCacheManager.CacheSpec defaults = new TwoLevelCacheManager.CacheSpec(
+                Duration.ofSeconds(localTtlSeconds),
+                localMaxSize,
+                Duration.ofSeconds(remoteTtlSeconds)
+        );
+
+        // Not invalidated on writes; the counts behind it move too often, so it just expires quickly
+        TwoLevelCacheManager.CacheSpec popularTags = new TwoLevelCacheManager.CacheSpec(
+                Duration.ofSeconds(popularTagsTtlSeconds),
+                localMaxSize,
+                Duration.ofSeconds(popularTagsTtlSeconds)
+        );
+
+        return new TwoLevelCacheManager(
+                connectionFactory,
+                redisTemplate,
+                meterRegistry,
+                Duration.ofSeconds(remoteRetrySeconds),
+                defaults,
+                Map.of(POPULAR_TAGS, popularTags)
+        );
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheEvictionListener(
+        RedisConnectionFactory connectionFactory,
+        TwoLevelCacheManager cacheManager,
+        UserPrincipalCache principalCache,
+        @Value("${app.security.principal-cache.redis-invalidation}") boolean principalInvalidation
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.EVICTION_CHANNEL));
+
+        if (principalInvalidation) {
+            container.addMessageListener(principalCache, new ChannelTopic(UserPrincipalCache.EVICTION_CHANNEL));
+        }
+
+        return container;
+    }
+}
@@ -0,0 +1,65 @@
+package org.bosf.moondance.config;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that clears the catalog caches whenever a school,
+ * department, course, session or instructor is written. Eviction runs after
+ * commit so a concurrent read cannot repopulate the cache with stale rows.
+ * The caches broadcast the clear, so other instances drop their L1 too.
+ */
+@Component
+public class CatalogCacheInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogCacheInvalidator.class);
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public CatalogCacheInvalidator(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCatalogChange(Object entity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictCatalog(entity);
+                }
+            });
+        } else {
+            evictCatalog(entity);
+        }
+    }
+
+    private void evictCatalog(Object entity) {
+        CacheManager manager = cacheManager.getIfAvailable();
+
+        if (manager == null) {
+            return;
+        }
+
+        for (String name : CacheConfig.CATALOG_CACHES) {
+            Cache cache = manager.getCache(name);
+
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+
+        log.debug("Catalog caches cleared after change to {}", entity.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,44 @@
+package org.bosf.moondance.config;
+
+import java.time.Duration;
+
+/**
+ * Stops the two-level caches from calling Redis for a while after a Redis
+ * call fails, so an outage costs one command timeout per retry window
+ * instead of one per lookup. Shared by every cache of a manager, since they
+ * all talk to the same Redis.
+ */
+final class RemoteTierBreaker {
+
+    private final Duration retryAfter;
+
+    private volatile boolean open;
+    private volatile long retryAtNanos;
+
+    RemoteTierBreaker(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    Duration retryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Whether Redis should be tried. Once the window has passed, calls go
+     * through again and the first result decides whether it stays closed.
+     */
+    boolean allowRequest() {
+        return !open || System.nanoTime() - retryAtNanos >= 0;
+    }
+
+    void recordSuccess() {
+        if (open) {
+            open = false;
+        }
+    }
+
+    void recordFailure() {
+        retryAtNanos = System.nanoTime() + retryAfter.toNanos();
+        open = true;
+    }
+}
@@ -38,6 +38,8 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Per-user reads under the public notes path
+                .requestMatchers(HttpMethod.GET, "/api/v1/notes/my-votes", "/api/v1/notes/my-notes", "/api/v1/notes/feed/my-notes").authenticated()
                 // Public endpoints
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/api/v1/schools/**").permitAll()
@@ -46,6 +48,8 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/v1/sessions/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/notes/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/tags/**").permitAll()
+                // Local storage files; the URL signature is checked by FileController
+                .requestMatchers("/api/v1/files/**").permitAll()
                 // Swagger/OpenAPI
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                 // Actuator
@@ -0,0 +1,211 @@
+package org.bosf.moondance.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Read-through cache backed by an in-process L1 and a shared Redis L2.
+ * Redis failures are logged and treated as misses so the catalog keeps
+ * working when Redis is unavailable, and trip a {@link RemoteTierBreaker}
+ * so reads and writes skip Redis until it has had time to recover.
+ * Evictions and clears always go to Redis and are broadcast so other
+ * instances drop their L1 copy as well.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCache.class);
+
+    private final String name;
+    private final Cache local;
+    private final Cache remote;
+    private final RemoteTierBreaker breaker;
+    private final Runnable broadcastEviction;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+
+    TwoLevelCache(
+        String name,
+        Cache local,
+        Cache remote,
+        MeterRegistry meterRegistry,
+        RemoteTierBreaker breaker,
+        Runnable broadcastEviction
+    ) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.breaker = breaker;
+        this.broadcastEviction = broadcastEviction;
+
+        this.localHits = counter(meterRegistry, "l1", "hit");
+        this.localMisses = counter(meterRegistry, "l1", "miss");
+        this.remoteHits = counter(meterRegistry, "l2", "hit");
+        this.remoteMisses = counter(meterRegistry, "l2", "miss");
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("moondance.cache.gets")
+                .description("Two-level cache lookups")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+
+        if (value != null) {
+            localHits.increment();
+
+            return value;
+        }
+
+        localMisses.increment();
+
+        if (!breaker.allowRequest()) {
+            return null;
+        }
+
+        try {
+            value = remote.get(key);
+            breaker.recordSuccess();
+        } catch (RuntimeException e) {
+            remoteFailed("lookup", e);
+
+            return null;
+        }
+
+        if (value == null) {
+            remoteMisses.increment();
+
+            return null;
+        }
+
+        remoteHits.increment();
+
+        if (value.get() != null) {
+            local.put(key, value.get());
+        }
+
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+
+        put(key, value);
+
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        local.put(key, value);
+
+        if (!breaker.allowRequest()) {
+            return;
+        }
+
+        try {
+            remote.put(key, value);
+            breaker.recordSuccess();
+        } catch (RuntimeException e) {
+            remoteFailed("write", e);
+        }
+    }
+
+    // Tried even while the breaker is open, since a skipped evict would leave a stale entry for the full remote TTL
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+
+        try {
+            remote.evict(key);
+            breaker.recordSuccess();
+        } catch (RuntimeException e) {
+            remoteFailed("evict", e);
+        }
+
+        broadcastEviction.run();
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+
+        try {
+            remote.clear();
+            breaker.recordSuccess();
+        } catch (RuntimeException e) {
+            remoteFailed("clear", e);
+        }
+
+        broadcastEviction.run();
+    }
+
+    /**
+     * Drops this instance's L1 copy only; called when another instance
+     * broadcasts an eviction.
+     */
+    public void clearLocal() {
+        local.clear();
+    }
+
+    private void remoteFailed(String operation, RuntimeException e) {
+        breaker.recordFailure();
+
+        log.warn("Redis {} failed for cache {}, skipping Redis for {}s: {}",
+                operation, name, breaker.retryAfter().toSeconds(), e.getMessage());
+    }
+}
@@ -0,0 +1,122 @@
+package org.bosf.moondance.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link TwoLevelCache}s and relays their evictions between
+ * instances over Redis pub/sub. A relayed eviction drops the whole L1 of
+ * that cache on the other instances: cache keys need not be serializable,
+ * and catalog writes are rare enough that refilling the L1 is cheap.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    public static final String EVICTION_CHANNEL = "moondance:cache-evictions";
+
+    public record CacheSpec(Duration localTtl, long localMaxSize, Duration remoteTtl) {}
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    private final CacheSpec defaultSpec;
+    private final Map<String, CacheSpec> specs;
+    private final RedisCacheManager redisCacheManager;
+    private final MeterRegistry meterRegistry;
+    private final StringRedisTemplate redisTemplate;
+    private final RemoteTierBreaker breaker;
+
+    public TwoLevelCacheManager(
+        RedisConnectionFactory connectionFactory,
+        StringRedisTemplate redisTemplate,
+        MeterRegistry meterRegistry,
+        Duration remoteRetryAfter,
+        CacheSpec defaultSpec,
+        Map<String, CacheSpec> specs
+    ) {
+        this.defaultSpec = defaultSpec;
+        this.specs = specs;
+        this.meterRegistry = meterRegistry;
+        this.redisTemplate = redisTemplate;
+        this.breaker = new RemoteTierBreaker(remoteRetryAfter);
+
+        Map<String, RedisCacheConfiguration> redisConfigs = new HashMap<>();
+
+        specs.forEach((name, spec) -> redisConfigs.put(name, redisConfiguration(spec)));
+
+        this.redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(redisConfiguration(defaultSpec))
+                .withInitialCacheConfigurations(redisConfigs)
+                .build();
+
+        this.redisCacheManager.initializeCaches();
+    }
+
+    private static RedisCacheConfiguration redisConfiguration(CacheSpec spec) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(spec.remoteTtl())
+                .prefixCacheNameWith("moondance:")
+                .disableCachingNullValues()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(RedisSerializer.java()));
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private Cache createCache(String name) {
+        CacheSpec spec = specs.getOrDefault(name, defaultSpec);
+
+        CaffeineCache local = new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(spec.localMaxSize())
+                .expireAfterWrite(spec.localTtl())
+                .build(), false);
+
+        return new TwoLevelCache(name, local, redisCacheManager.getCache(name), meterRegistry, breaker, () -> publishEviction(name));
+    }
+
+    private void publishEviction(String name) {
+        try {
+            redisTemplate.convertAndSend(EVICTION_CHANNEL, name);
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish eviction for cache {}: {}", name, e.getMessage());
+        }
+    }
+
+    // Also receives this instance's own broadcasts; clearing an L1 twice at worst costs a refill
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String name = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        if (caches.get(name) instanceof TwoLevelCache cache) {
+            cache.clearLocal();
+        }
+    }
+}
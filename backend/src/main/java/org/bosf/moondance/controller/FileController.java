@@ -0,0 +1,173 @@
+package org.bosf.moondance.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.bosf.moondance.exception.ApiException;
+import org.bosf.moondance.service.LocalStorageBackend;
+import org.bosf.moondance.service.StorageBackend;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Serves and accepts files through the signed URLs {@link LocalStorageBackend}
+ * hands out. The signature is the only authorization, as with S3.
+ */
+@RestController
+@RequestMapping("/api/v1/files")
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+@Tag(name = "Files", description = "Signed file endpoints for local storage")
+public class FileController {
+
+    // Tomcat's sendfile request attributes; the connector then writes the file straight from the page cache
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalStorageBackend storage;
+
+    public FileController(LocalStorageBackend storage) {
+        this.storage = storage;
+    }
+
+    @GetMapping("/**")
+    @Operation(summary = "Download a file by signed URL")
+    public void download(
+        @RequestParam long expires,
+        @RequestParam(required = false) String disposition,
+        @RequestParam String signature,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        String key = keyOf(request);
+
+        storage.verifyDownload(key, disposition, expires, signature);
+
+        StorageBackend.StoredObject object = storage.describe(key)
+                .orElseThrow(() -> new ApiException.NotFoundException("File not found: " + key));
+
+        long length = object.size();
+        long start = 0;
+        long end = length - 1;
+
+        List<HttpRange> ranges = parseRanges(request.getHeader(HttpHeaders.RANGE));
+
+        // Several ranges are answered with the whole file, which RFC 9110 allows
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.getFirst();
+
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+
+                return;
+            }
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+
+        response.setContentType(object.contentType());
+        response.setContentLengthLong(count);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + Math.max(0, expires - Instant.now().getEpochSecond()));
+
+        if (disposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        }
+
+        Path path = storage.pathOf(key);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+
+                // Only happens if the file shrank under us
+                if (sent <= 0) {
+                    break;
+                }
+
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    @PutMapping("/**")
+    @Operation(summary = "Upload a file by signed URL")
+    public ResponseEntity<Void> upload(
+        @RequestParam long expires,
+        @RequestParam String sha256,
+        @RequestParam String signature,
+        HttpServletRequest request
+    ) throws IOException {
+        // A chunked body has no length to check against the signed size
+        if (request.getContentLengthLong() < 0) {
+            throw new ApiException.LengthRequiredException("Content-Length is required");
+        }
+
+        try (InputStream in = request.getInputStream()) {
+            storage.acceptUpload(
+                    keyOf(request),
+                    in,
+                    request.getContentLengthLong(),
+                    request.getContentType(),
+                    sha256,
+                    expires,
+                    signature
+            );
+        }
+
+        return ResponseEntity.ok().build();
+    }
+
+    private static String keyOf(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+
+        return path.startsWith(LocalStorageBackend.URL_PREFIX) ? path.substring(LocalStorageBackend.URL_PREFIX.length()) : "";
+    }
+
+    // A malformed Range header is ignored and the whole file sent
+    private static List<HttpRange> parseRanges(String header) {
+        try {
+            return HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
@@ -17,6 +17,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/v1")
 @Tag(name = "Interactions", description = "Voting and reporting endpoints")
@@ -64,6 +67,17 @@ public class InteractionController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    @GetMapping("/notes/my-votes")
+    @Operation(summary = "Get current user's votes on a set of notes")
+    public ResponseEntity<ApiResponse<List<InteractionDto.VoteResponse>>> getMyVotes(
+        @RequestParam List<Long> noteIds,
+        @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        List<InteractionDto.VoteResponse> response = voteService.getUserVotes(Set.copyOf(noteIds), principal.getId());
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     @PostMapping("/notes/{noteId}/report")
     @Operation(summary = "Report a note")
     public ResponseEntity<ApiResponse<InteractionDto.ReportResponse>> reportNote(
@@ -45,6 +45,26 @@ public class NoteController {
         return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("Note uploaded successfully", note));
     }
 
+    @PostMapping("/uploads")
+    @Operation(summary = "Start a direct upload to storage")
+    public ResponseEntity<ApiResponse<NoteDto.UploadTicket>> createUpload(
+        @AuthenticationPrincipal UserPrincipal principal,
+        @Valid @RequestBody NoteDto.UploadRequest request
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.createUpload(principal.getId(), request)));
+    }
+
+    @PostMapping("/uploads/complete")
+    @Operation(summary = "Verify a direct upload and create the note")
+    public ResponseEntity<ApiResponse<NoteDto>> completeUpload(
+        @AuthenticationPrincipal UserPrincipal principal,
+        @Valid @RequestBody NoteDto.CompleteUploadRequest request
+    ) {
+        NoteDto note = noteService.completeUpload(principal.getId(), request);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("Note uploaded successfully", note));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get note by ID")
     public ResponseEntity<ApiResponse<NoteDto>> getNoteById(@PathVariable Long id) {
@@ -57,9 +77,10 @@ public class NoteController {
     @Operation(summary = "Get notes by course session")
     public ResponseEntity<ApiResponse<ApiResponse.PageResponse<NoteDto>>> getNotesByCourseSession(
         @PathVariable Long courseSessionId,
-        @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
+        @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+        @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.getNotesByCourseSession(courseSessionId, pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.getNotesByCourseSession(courseSessionId, pageable, viewerId(principal))));
     }
 
     @GetMapping("/search")
@@ -67,27 +88,30 @@ public class NoteController {
     public ResponseEntity<ApiResponse<ApiResponse.PageResponse<NoteDto>>> searchNotes(
         @RequestParam Long schoolId,
         @RequestParam String query,
-        @PageableDefault(size = 20) Pageable pageable
+        @PageableDefault(size = 20) Pageable pageable,
+        @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.searchNotes(schoolId, query, pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.searchNotes(schoolId, query, pageable, viewerId(principal))));
     }
 
     @GetMapping("/trending")
     @Operation(summary = "Get trending notes")
     public ResponseEntity<ApiResponse<ApiResponse.PageResponse<NoteDto>>> getTrendingNotes(
         @RequestParam Long schoolId,
-        @PageableDefault(size = 20) Pageable pageable
+        @PageableDefault(size = 20) Pageable pageable,
+        @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.getTrendingNotes(schoolId, pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.getTrendingNotes(schoolId, pageable, viewerId(principal))));
     }
 
     @GetMapping("/recent")
     @Operation(summary = "Get recent notes")
     public ResponseEntity<ApiResponse<ApiResponse.PageResponse<NoteDto>>> getRecentNotes(
         @RequestParam Long schoolId,
-        @PageableDefault(size = 20) Pageable pageable
+        @PageableDefault(size = 20) Pageable pageable,
+        @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.getRecentNotes(schoolId, pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.getRecentNotes(schoolId, pageable, viewerId(principal))));
     }
 
     @GetMapping("/by-type")
@@ -95,9 +119,10 @@ public class NoteController {
     public ResponseEntity<ApiResponse<ApiResponse.PageResponse<NoteDto>>> getNotesByType(
         @RequestParam Long schoolId,
         @RequestParam Note.NoteType type,
-        @PageableDefault(size = 20) Pageable pageable
+        @PageableDefault(size = 20) Pageable pageable,
+        @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.getNotesByType(schoolId, type, pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.getNotesByType(schoolId, type, pageable, viewerId(principal))));
     }
 
     @GetMapping("/my-notes")
@@ -106,7 +131,62 @@ public class NoteController {
         @AuthenticationPrincipal UserPrincipal principal,
         @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
-        return ResponseEntity.ok(ApiResponse.success(noteService.getUserNotes(principal.getId(), pageable)));
+        return ResponseEntity.ok(ApiResponse.success(noteService.getUserNotes(principal.getId(), pageable, principal.getId())));
+    }
+
+    @GetMapping("/feed/course-session/{courseSessionId}")
+    @Operation(summary = "Get notes by course session, newest first, by cursor")
+    public ResponseEntity<ApiResponse<ApiResponse.SliceResponse<NoteDto>>> getCourseSessionFeed(
+        @PathVariable Long courseSessionId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size,
+        @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.getCourseSessionFeed(courseSessionId, cursor, size, viewerId(principal))));
+    }
+
+    @GetMapping("/feed/trending")
+    @Operation(summary = "Get trending notes by cursor")
+    public ResponseEntity<ApiResponse<ApiResponse.SliceResponse<NoteDto>>> getTrendingFeed(
+        @RequestParam Long schoolId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size,
+        @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.getTrendingFeed(schoolId, cursor, size, viewerId(principal))));
+    }
+
+    @GetMapping("/feed/recent")
+    @Operation(summary = "Get recent notes by cursor")
+    public ResponseEntity<ApiResponse<ApiResponse.SliceResponse<NoteDto>>> getRecentFeed(
+        @RequestParam Long schoolId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size,
+        @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.getRecentFeed(schoolId, cursor, size, viewerId(principal))));
+    }
+
+    @GetMapping("/feed/by-type")
+    @Operation(summary = "Get notes by type, newest first, by cursor")
+    public ResponseEntity<ApiResponse<ApiResponse.SliceResponse<NoteDto>>> getTypeFeed(
+        @RequestParam Long schoolId,
+        @RequestParam Note.NoteType type,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size,
+        @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.getTypeFeed(schoolId, type, cursor, size, viewerId(principal))));
+    }
+
+    @GetMapping("/feed/my-notes")
+    @Operation(summary = "Get current user's notes by cursor")
+    public ResponseEntity<ApiResponse<ApiResponse.SliceResponse<NoteDto>>> getMyNotesFeed(
+        @AuthenticationPrincipal UserPrincipal principal,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(noteService.getUserFeed(principal.getId(), cursor, size, principal.getId())));
     }
 
     @PatchMapping("/{id}")
@@ -149,4 +229,9 @@ public class NoteController {
         
         return ResponseEntity.ok(ApiResponse.success(url));
     }
+
+    // Listing endpoints are public; signed-in callers also get their own vote on each note
+    private static Long viewerId(UserPrincipal principal) {
+        return principal != null ? principal.getId() : null;
+    }
 }
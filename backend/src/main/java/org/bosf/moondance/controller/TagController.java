@@ -2,7 +2,8 @@ package org.bosf.moondance.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import org.bosf.moondance.dto.ApiResponse;
-import org.bosf.moondance.repository.TagRepository;
+import org.bosf.moondance.dto.TagDto;
+import org.bosf.moondance.service.TagService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,42 +14,27 @@ import java.util.List;
 @io.swagger.v3.oas.annotations.tags.Tag(name = "Tags", description = "Tag endpoints")
 public class TagController {
 
-    private final TagRepository tagRepository;
+    private final TagService tagService;
 
-    public TagController(TagRepository tagRepository) {
-        this.tagRepository = tagRepository;
+    public TagController(TagService tagService) {
+        this.tagService = tagService;
     }
 
     @GetMapping
     @Operation(summary = "Get all tags")
-    public ResponseEntity<ApiResponse<List<TagResponse>>> getAllTags() {
-        List<TagResponse> tags = tagRepository.findAll().stream()
-            .map(t -> new TagResponse(t.getId(), t.getName(), t.getColor()))
-            .toList();
-
-        return ResponseEntity.ok(ApiResponse.success(tags));
+    public ResponseEntity<ApiResponse<List<TagDto>>> getAllTags() {
+        return ResponseEntity.ok(ApiResponse.success(tagService.getAllTags()));
     }
 
     @GetMapping("/search")
     @Operation(summary = "Search tags by name")
-    public ResponseEntity<ApiResponse<List<TagResponse>>> searchTags(@RequestParam String query) {
-        List<TagResponse> tags = tagRepository.searchByName(query).stream()
-            .map(t -> new TagResponse(t.getId(), t.getName(), t.getColor()))
-            .toList();
-
-        return ResponseEntity.ok(ApiResponse.success(tags));
+    public ResponseEntity<ApiResponse<List<TagDto>>> searchTags(@RequestParam String query) {
+        return ResponseEntity.ok(ApiResponse.success(tagService.searchTags(query)));
     }
 
     @GetMapping("/popular")
     @Operation(summary = "Get popular tags for a school")
-    public ResponseEntity<ApiResponse<List<TagResponse>>> getPopularTags(@RequestParam Long schoolId) {
-        List<TagResponse> tags = tagRepository.findPopularBySchoolId(schoolId).stream()
-            .limit(20)
-            .map(t -> new TagResponse(t.getId(), t.getName(), t.getColor()))
-            .toList();
-            
-        return ResponseEntity.ok(ApiResponse.success(tags));
+    public ResponseEntity<ApiResponse<List<TagDto>>> getPopularTags(@RequestParam Long schoolId) {
+        return ResponseEntity.ok(ApiResponse.success(tagService.getPopularTags(schoolId)));
     }
-
-    public record TagResponse(Long id, String name, String color) {}
 }
@@ -1,6 +1,7 @@
 package org.bosf.moondance.dto;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -117,4 +118,44 @@ public class ApiResponse<T> {
         public boolean isLast() { return last; }
         public void setLast(boolean last) { this.last = last; }
     }
+
+    public static class SliceResponse<T> {
+        private List<T> content;
+        private int size;
+        private boolean hasNext;
+        private String nextCursor;
+
+        public SliceResponse() {}
+
+        public SliceResponse(List<T> content, int size, boolean hasNext, String nextCursor) {
+            this.content = content;
+            this.size = size;
+            this.hasNext = hasNext;
+            this.nextCursor = nextCursor;
+        }
+
+        public static <T, E> SliceResponse<T> from(
+            Slice<E> slice,
+            java.util.function.Function<E, T> mapper,
+            java.util.function.Function<E, String> cursor
+        ) {
+            List<E> content = slice.getContent();
+
+            return new SliceResponse<>(
+                    content.stream().map(mapper).toList(),
+                    slice.getSize(),
+                    slice.hasNext(),
+                    slice.hasNext() ? cursor.apply(content.getLast()) : null
+            );
+        }
+
+        public List<T> getContent() { return content; }
+        public void setContent(List<T> content) { this.content = content; }
+        public int getSize() { return size; }
+        public void setSize(int size) { this.size = size; }
+        public boolean isHasNext() { return hasNext; }
+        public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
 }
@@ -1,5 +1,6 @@
 package org.bosf.moondance.dto;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
 import org.bosf.moondance.entity.Course;
@@ -11,7 +12,7 @@ import org.bosf.moondance.entity.Session;
 
 public class CourseDto {
 
-    public static class SchoolResponse {
+    public static class SchoolResponse implements Serializable {
         private Long id;
         private String name;
         private String domain;
@@ -84,7 +85,7 @@ public class CourseDto {
         public void setCountry(String country) { this.country = country; }
     }
 
-    public static class DepartmentResponse {
+    public static class DepartmentResponse implements Serializable {
         private Long id;
         private String code;
         private String name;
@@ -147,7 +148,7 @@ public class CourseDto {
         public void setCourseCount(Integer courseCount) { this.courseCount = courseCount; }
     }
 
-    public static class CourseResponse {
+    public static class CourseResponse implements Serializable {
         private Long id;
         private String code;
         private String title;
@@ -220,7 +221,7 @@ public class CourseDto {
         public void setDepartmentName(String departmentName) { this.departmentName = departmentName; }
     }
 
-    public static class SessionResponse {
+    public static class SessionResponse implements Serializable {
         private Long id;
         private String name;
         private Session.SessionType type;
@@ -283,7 +284,7 @@ public class CourseDto {
         public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
     }
 
-    public static class InstructorResponse {
+    public static class InstructorResponse implements Serializable {
         private Long id;
         private String name;
         private String email;
@@ -346,7 +347,7 @@ public class CourseDto {
         public void setDepartmentName(String departmentName) { this.departmentName = departmentName; }
     }
 
-    public static class CourseSessionResponse {
+    public static class CourseSessionResponse implements Serializable {
         private Long id;
         private Long courseId;
         private String courseCode;
@@ -1,10 +1,14 @@
 package org.bosf.moondance.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -20,6 +24,7 @@ public class NoteDto {
     private String mimeType;
     private String originalFileName;
     private String thumbnailUrl;
+    private String previewUrl;
     private Note.ProcessingStatus processingStatus;
     private String weekLabel;
     private Long courseSessionId;
@@ -35,6 +40,7 @@ public class NoteDto {
     private Integer downloadCount;
     private Double averageRating;
     private Integer voteCount;
+    private Integer myVote;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -50,6 +56,7 @@ public class NoteDto {
         String mimeType, 
         String originalFileName, 
         String thumbnailUrl, 
+        String previewUrl, 
         Note.ProcessingStatus processingStatus, 
         String weekLabel, 
         Long courseSessionId, 
@@ -65,6 +72,7 @@ public class NoteDto {
         Integer downloadCount, 
         Double averageRating, 
         Integer voteCount, 
+        Integer myVote, 
         LocalDateTime createdAt, 
         LocalDateTime updatedAt
     ) {
@@ -77,6 +85,7 @@ public class NoteDto {
         this.mimeType = mimeType;
         this.originalFileName = originalFileName;
         this.thumbnailUrl = thumbnailUrl;
+        this.previewUrl = previewUrl;
         this.processingStatus = processingStatus;
         this.weekLabel = weekLabel;
         this.courseSessionId = courseSessionId;
@@ -92,6 +101,7 @@ public class NoteDto {
         this.downloadCount = downloadCount;
         this.averageRating = averageRating;
         this.voteCount = voteCount;
+        this.myVote = myVote;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
@@ -110,6 +120,7 @@ public class NoteDto {
         private String mimeType;
         private String originalFileName;
         private String thumbnailUrl;
+        private String previewUrl;
         private Note.ProcessingStatus processingStatus;
         private String weekLabel;
         private Long courseSessionId;
@@ -125,6 +136,7 @@ public class NoteDto {
         private Integer downloadCount;
         private Double averageRating;
         private Integer voteCount;
+        private Integer myVote;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
 
@@ -182,6 +194,12 @@ public class NoteDto {
             return this; 
         }
 
+        public Builder previewUrl(String previewUrl) { 
+            this.previewUrl = previewUrl; 
+            
+            return this; 
+        }
+
         public Builder processingStatus(Note.ProcessingStatus processingStatus) { 
             this.processingStatus = processingStatus; 
             
@@ -272,6 +290,12 @@ public class NoteDto {
             return this; 
         }
 
+        public Builder myVote(Integer myVote) { 
+            this.myVote = myVote; 
+            
+            return this; 
+        }
+
         public Builder createdAt(LocalDateTime createdAt) { 
             this.createdAt = createdAt; 
             
@@ -295,6 +319,7 @@ public class NoteDto {
                 mimeType, 
                 originalFileName, 
                 thumbnailUrl, 
+                previewUrl, 
                 processingStatus, 
                 weekLabel, 
                 courseSessionId, 
@@ -310,6 +335,7 @@ public class NoteDto {
                 downloadCount, 
                 averageRating, 
                 voteCount, 
+                myVote, 
                 createdAt, 
                 updatedAt
             );
@@ -326,7 +352,6 @@ public class NoteDto {
                 .fileSize(note.getFileSize())
                 .mimeType(note.getMimeType())
                 .originalFileName(note.getOriginalFileName())
-                .thumbnailUrl(note.getThumbnailKey())
                 .processingStatus(note.getProcessingStatus())
                 .weekLabel(note.getWeekLabel())
                 .courseSessionId(note.getCourseSession().getId())
@@ -419,6 +444,14 @@ public class NoteDto {
         this.thumbnailUrl = thumbnailUrl; 
     }
 
+    public String getPreviewUrl() { 
+        return previewUrl; 
+    }
+
+    public void setPreviewUrl(String previewUrl) { 
+        this.previewUrl = previewUrl; 
+    }
+
     public Note.ProcessingStatus getProcessingStatus() { 
         return processingStatus; 
     }
@@ -538,6 +571,14 @@ public class NoteDto {
         this.voteCount = voteCount; 
     }
 
+    public Integer getMyVote() { 
+        return myVote; 
+    }
+
+    public void setMyVote(Integer myVote) { 
+        this.myVote = myVote; 
+    }
+
     public LocalDateTime getCreatedAt() { 
         return createdAt; 
     }
@@ -784,4 +825,259 @@ public class NoteDto {
             this.tags = tags; 
         }
     }
+
+    public static class UploadRequest {
+        @NotBlank(message = "File name is required")
+        @Size(max = 255, message = "File name must be less than 255 characters")
+        private String fileName;
+
+        @NotBlank(message = "Content type is required")
+        private String contentType;
+
+        @NotNull(message = "File size is required")
+        @Positive(message = "File size must be positive")
+        private Long fileSize;
+
+        @NotBlank(message = "SHA-256 is required")
+        @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "SHA-256 must be 64 hex characters")
+        private String sha256;
+
+        public UploadRequest() {}
+
+        public UploadRequest(String fileName, String contentType, Long fileSize, String sha256) {
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.fileSize = fileSize;
+            this.sha256 = sha256;
+        }
+
+        public static Builder builder() { return new Builder(); }
+
+        public static class Builder {
+            private String fileName;
+            private String contentType;
+            private Long fileSize;
+            private String sha256;
+
+            public Builder fileName(String fileName) { 
+                this.fileName = fileName; 
+                
+                return this; 
+            }
+
+            public Builder contentType(String contentType) { 
+                this.contentType = contentType; 
+                
+                return this; 
+            }
+
+            public Builder fileSize(Long fileSize) { 
+                this.fileSize = fileSize; 
+                
+                return this; 
+            }
+
+            public Builder sha256(String sha256) { 
+                this.sha256 = sha256; 
+                
+                return this; 
+            }
+
+            public UploadRequest build() { 
+                return new UploadRequest(fileName, contentType, fileSize, sha256); 
+            }
+        }
+
+        public String getFileName() { 
+            return fileName; 
+        }
+
+        public void setFileName(String fileName) { 
+            this.fileName = fileName; 
+        }
+
+        public String getContentType() { 
+            return contentType; 
+        }
+
+        public void setContentType(String contentType) { 
+            this.contentType = contentType; 
+        }
+
+        public Long getFileSize() { 
+            return fileSize; 
+        }
+
+        public void setFileSize(Long fileSize) { 
+            this.fileSize = fileSize; 
+        }
+
+        public String getSha256() { 
+            return sha256; 
+        }
+
+        public void setSha256(String sha256) { 
+            this.sha256 = sha256; 
+        }
+    }
+
+    public static class UploadTicket {
+        private String uploadKey;
+        private String uploadUrl;
+        private Map<String, String> headers;
+        private LocalDateTime expiresAt;
+
+        public UploadTicket() {}
+
+        public UploadTicket(String uploadKey, String uploadUrl, Map<String, String> headers, LocalDateTime expiresAt) {
+            this.uploadKey = uploadKey;
+            this.uploadUrl = uploadUrl;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+        }
+
+        public static Builder builder() { return new Builder(); }
+
+        public static class Builder {
+            private String uploadKey;
+            private String uploadUrl;
+            private Map<String, String> headers;
+            private LocalDateTime expiresAt;
+
+            public Builder uploadKey(String uploadKey) { 
+                this.uploadKey = uploadKey; 
+                
+                return this; 
+            }
+
+            public Builder uploadUrl(String uploadUrl) { 
+                this.uploadUrl = uploadUrl; 
+                
+                return this; 
+            }
+
+            public Builder headers(Map<String, String> headers) { 
+                this.headers = headers; 
+                
+                return this; 
+            }
+
+            public Builder expiresAt(LocalDateTime expiresAt) { 
+                this.expiresAt = expiresAt; 
+                
+                return this; 
+            }
+
+            public UploadTicket build() { 
+                return new UploadTicket(uploadKey, uploadUrl, headers, expiresAt); 
+            }
+        }
+
+        public String getUploadKey() { 
+            return uploadKey; 
+        }
+
+        public void setUploadKey(String uploadKey) { 
+            this.uploadKey = uploadKey; 
+        }
+
+        public String getUploadUrl() { 
+            return uploadUrl; 
+        }
+
+        public void setUploadUrl(String uploadUrl) { 
+            this.uploadUrl = uploadUrl; 
+        }
+
+        public Map<String, String> getHeaders() { 
+            return headers; 
+        }
+
+        public void setHeaders(Map<String, String> headers) { 
+            this.headers = headers; 
+        }
+
+        public LocalDateTime getExpiresAt() { 
+            return expiresAt; 
+        }
+
+        public void setExpiresAt(LocalDateTime expiresAt) { 
+            this.expiresAt = expiresAt; 
+        }
+    }
+
+    public static class CompleteUploadRequest {
+        @NotBlank(message = "Upload key is required")
+        private String uploadKey;
+
+        @NotNull(message = "Upload details are required")
+        @Valid
+        private UploadRequest file;
+
+        @NotNull(message = "Note details are required")
+        @Valid
+        private CreateRequest note;
+
+        public CompleteUploadRequest() {}
+
+        public CompleteUploadRequest(String uploadKey, UploadRequest file, CreateRequest note) {
+            this.uploadKey = uploadKey;
+            this.file = file;
+            this.note = note;
+        }
+
+        public static Builder builder() { return new Builder(); }
+
+        public static class Builder {
+            private String uploadKey;
+            private UploadRequest file;
+            private CreateRequest note;
+
+            public Builder uploadKey(String uploadKey) { 
+                this.uploadKey = uploadKey; 
+                
+                return this; 
+            }
+
+            public Builder file(UploadRequest file) { 
+                this.file = file; 
+                
+                return this; 
+            }
+
+            public Builder note(CreateRequest note) { 
+                this.note = note; 
+                
+                return this; 
+            }
+
+            public CompleteUploadRequest build() { 
+                return new CompleteUploadRequest(uploadKey, file, note); 
+            }
+        }
+
+        public String getUploadKey() { 
+            return uploadKey; 
+        }
+
+        public void setUploadKey(String uploadKey) { 
+            this.uploadKey = uploadKey; 
+        }
+
+        public UploadRequest getFile() { 
+            return file; 
+        }
+
+        public void setFile(UploadRequest file) { 
+            this.file = file; 
+        }
+
+        public CreateRequest getNote() { 
+            return note; 
+        }
+
+        public void setNote(CreateRequest note) { 
+            this.note = note; 
+        }
+    }
 }
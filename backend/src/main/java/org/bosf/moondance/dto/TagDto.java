@@ -0,0 +1,12 @@
+package org.bosf.moondance.dto;
+
+import org.bosf.moondance.entity.Tag;
+
+import java.io.Serializable;
+
+public record TagDto(Long id, String name, String color) implements Serializable {
+
+    public static TagDto fromEntity(Tag tag) {
+        return new TagDto(tag.getId(), tag.getName(), tag.getColor());
+    }
+}
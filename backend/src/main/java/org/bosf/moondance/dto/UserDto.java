@@ -112,6 +112,27 @@ public class UserDto {
                 .build();
     }
 
+    // Limited public info for other users' profiles
+    public static UserDto publicProfile(User user) {
+        return UserDto.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .major(user.getMajor())
+                .graduationYear(user.getGraduationYear())
+                .avatarUrl(user.getAvatarUrl())
+                .reputationPoints(user.getReputationPoints())
+                .schoolName(user.getSchool() != null ? user.getSchool().getName() : null)
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+
+    public record UpdateProfileRequest(
+        String name,
+        String major,
+        Integer graduationYear,
+        String avatarUrl
+    ) {}
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getEmail() { return email; }
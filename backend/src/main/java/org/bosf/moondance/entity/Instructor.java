@@ -1,6 +1,7 @@
 package org.bosf.moondance.entity;
 
 import jakarta.persistence.*;
+import org.bosf.moondance.config.CatalogCacheInvalidator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -10,6 +11,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "instructors")
+@EntityListeners(CatalogCacheInvalidator.class)
 public class Instructor {
 
     @Id
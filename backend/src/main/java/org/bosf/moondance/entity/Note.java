@@ -2,14 +2,17 @@ package org.bosf.moondance.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "notes")
+@DynamicUpdate
 public class Note {
 
     @Id
@@ -44,8 +47,8 @@ public class Note {
     @Column(length = 500)
     private String thumbnailKey;
 
-    @Column(columnDefinition = "TEXT")
-    private String extractedContent;
+    @Column(length = 500)
+    private String previewKey;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -58,6 +61,10 @@ public class Note {
     @JoinColumn(name = "course_session_id", nullable = false)
     private CourseSession courseSession;
 
+    // Copied from the course session so school feeds filter without joining up to the school
+    @Column(nullable = false, updatable = false)
+    private Long schoolId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploader_id", nullable = false)
     private User uploader;
@@ -68,7 +75,9 @@ public class Note {
         joinColumns = @JoinColumn(name = "note_id"),
         inverseJoinColumns = @JoinColumn(name = "tag_id")
     )
-    private Set<Tag> tags = new HashSet<>();
+    // Kept in tag id order so note_tags rows, and the count rows their trigger locks, are always written in the same order
+    @OrderBy("id")
+    private Set<Tag> tags = new LinkedHashSet<>();
 
     @OneToMany(mappedBy = "note", cascade = CascadeType.ALL)
     private Set<Vote> votes = new HashSet<>();
@@ -88,6 +97,16 @@ public class Note {
     @Column(nullable = false)
     private Integer voteCount = 0;
 
+    @Column(nullable = false)
+    private Integer ratingCount = 0;
+
+    @Column(nullable = false)
+    private Long ratingSum = 0L;
+
+    // Log-domain decayed activity, see TrendingScorer; advanced in bulk by the counter flush
+    @Column(nullable = false)
+    private Double hotScore = 0.0;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -120,10 +139,11 @@ public class Note {
         String mimeType,
         String originalFileName,
         String thumbnailKey,
-        String extractedContent,
+        String previewKey,
         ProcessingStatus processingStatus,
         String weekLabel,
         CourseSession courseSession,
+        Long schoolId,
         User uploader,
         Set<Tag> tags,
         Set<Vote> votes,
@@ -132,6 +152,9 @@ public class Note {
         Integer downloadCount,
         Double averageRating,
         Integer voteCount,
+        Integer ratingCount,
+        Long ratingSum,
+        Double hotScore,
         LocalDateTime createdAt,
         LocalDateTime updatedAt,
         LocalDateTime deletedAt
@@ -146,18 +169,22 @@ public class Note {
         this.mimeType = mimeType;
         this.originalFileName = originalFileName;
         this.thumbnailKey = thumbnailKey;
-        this.extractedContent = extractedContent;
+        this.previewKey = previewKey;
         this.processingStatus = (processingStatus != null) ? processingStatus : ProcessingStatus.PENDING;
         this.weekLabel = weekLabel;
         this.courseSession = courseSession;
+        this.schoolId = schoolId;
         this.uploader = uploader;
-        this.tags = (tags != null) ? tags : new HashSet<>();
+        this.tags = (tags != null) ? tags : new LinkedHashSet<>();
         this.votes = (votes != null) ? votes : new HashSet<>();
         this.reports = (reports != null) ? reports : new HashSet<>();
         this.viewCount = (viewCount != null) ? viewCount : 0;
         this.downloadCount = (downloadCount != null) ? downloadCount : 0;
         this.averageRating = (averageRating != null) ? averageRating : 0.0;
         this.voteCount = (voteCount != null) ? voteCount : 0;
+        this.ratingCount = (ratingCount != null) ? ratingCount : 0;
+        this.ratingSum = (ratingSum != null) ? ratingSum : 0L;
+        this.hotScore = (hotScore != null) ? hotScore : 0.0;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
         this.deletedAt = deletedAt;
@@ -178,10 +205,11 @@ public class Note {
         private String mimeType;
         private String originalFileName;
         private String thumbnailKey;
-        private String extractedContent;
+        private String previewKey;
         private ProcessingStatus processingStatus;
         private String weekLabel;
         private CourseSession courseSession;
+        private Long schoolId;
         private User uploader;
         private Set<Tag> tags;
         private Set<Vote> votes;
@@ -190,6 +218,9 @@ public class Note {
         private Integer downloadCount;
         private Double averageRating;
         private Integer voteCount;
+        private Integer ratingCount;
+        private Long ratingSum;
+        private Double hotScore;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
         private LocalDateTime deletedAt;
@@ -204,10 +235,11 @@ public class Note {
         public Builder mimeType(String mimeType) { this.mimeType = mimeType; return this; }
         public Builder originalFileName(String originalFileName) { this.originalFileName = originalFileName; return this; }
         public Builder thumbnailKey(String thumbnailKey) { this.thumbnailKey = thumbnailKey; return this; }
-        public Builder extractedContent(String extractedContent) { this.extractedContent = extractedContent; return this; }
+        public Builder previewKey(String previewKey) { this.previewKey = previewKey; return this; }
         public Builder processingStatus(ProcessingStatus processingStatus) { this.processingStatus = processingStatus; return this; }
         public Builder weekLabel(String weekLabel) { this.weekLabel = weekLabel; return this; }
         public Builder courseSession(CourseSession courseSession) { this.courseSession = courseSession; return this; }
+        public Builder schoolId(Long schoolId) { this.schoolId = schoolId; return this; }
         public Builder uploader(User uploader) { this.uploader = uploader; return this; }
         public Builder tags(Set<Tag> tags) { this.tags = tags; return this; }
         public Builder votes(Set<Vote> votes) { this.votes = votes; return this; }
@@ -216,6 +248,9 @@ public class Note {
         public Builder downloadCount(Integer downloadCount) { this.downloadCount = downloadCount; return this; }
         public Builder averageRating(Double averageRating) { this.averageRating = averageRating; return this; }
         public Builder voteCount(Integer voteCount) { this.voteCount = voteCount; return this; }
+        public Builder ratingCount(Integer ratingCount) { this.ratingCount = ratingCount; return this; }
+        public Builder ratingSum(Long ratingSum) { this.ratingSum = ratingSum; return this; }
+        public Builder hotScore(Double hotScore) { this.hotScore = hotScore; return this; }
         public Builder createdAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
         public Builder updatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; return this; }
         public Builder deletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; return this; }
@@ -232,10 +267,11 @@ public class Note {
                 mimeType, 
                 originalFileName, 
                 thumbnailKey, 
-                extractedContent, 
+                previewKey, 
                 processingStatus, 
                 weekLabel, 
                 courseSession, 
+                schoolId, 
                 uploader, 
                 tags, 
                 votes, 
@@ -244,6 +280,9 @@ public class Note {
                 downloadCount, 
                 averageRating, 
                 voteCount, 
+                ratingCount, 
+                ratingSum, 
+                hotScore, 
                 createdAt, 
                 updatedAt, 
                 deletedAt
@@ -271,18 +310,20 @@ public class Note {
     public void setOriginalFileName(String originalFileName) { this.originalFileName = originalFileName; }
     public String getThumbnailKey() { return thumbnailKey; }
     public void setThumbnailKey(String thumbnailKey) { this.thumbnailKey = thumbnailKey; }
-    public String getExtractedContent() { return extractedContent; }
-    public void setExtractedContent(String extractedContent) { this.extractedContent = extractedContent; }
+    public String getPreviewKey() { return previewKey; }
+    public void setPreviewKey(String previewKey) { this.previewKey = previewKey; }
     public ProcessingStatus getProcessingStatus() { return processingStatus; }
     public void setProcessingStatus(ProcessingStatus processingStatus) { this.processingStatus = (processingStatus != null) ? processingStatus : ProcessingStatus.PENDING; }
     public String getWeekLabel() { return weekLabel; }
     public void setWeekLabel(String weekLabel) { this.weekLabel = weekLabel; }
     public CourseSession getCourseSession() { return courseSession; }
     public void setCourseSession(CourseSession courseSession) { this.courseSession = courseSession; }
+    public Long getSchoolId() { return schoolId; }
+    public void setSchoolId(Long schoolId) { this.schoolId = schoolId; }
     public User getUploader() { return uploader; }
     public void setUploader(User uploader) { this.uploader = uploader; }
     public Set<Tag> getTags() { return tags; }
-    public void setTags(Set<Tag> tags) { this.tags = (tags != null) ? tags : new HashSet<>(); }
+    public void setTags(Set<Tag> tags) { this.tags = (tags != null) ? tags : new LinkedHashSet<>(); }
     public Set<Vote> getVotes() { return votes; }
     public void setVotes(Set<Vote> votes) { this.votes = (votes != null) ? votes : new HashSet<>(); }
     public Set<Report> getReports() { return reports; }
@@ -295,6 +336,12 @@ public class Note {
     public void setAverageRating(Double averageRating) { this.averageRating = (averageRating != null) ? averageRating : 0.0; }
     public Integer getVoteCount() { return voteCount; }
     public void setVoteCount(Integer voteCount) { this.voteCount = (voteCount != null) ? voteCount : 0; }
+    public Integer getRatingCount() { return ratingCount; }
+    public void setRatingCount(Integer ratingCount) { this.ratingCount = (ratingCount != null) ? ratingCount : 0; }
+    public Long getRatingSum() { return ratingSum; }
+    public void setRatingSum(Long ratingSum) { this.ratingSum = (ratingSum != null) ? ratingSum : 0L; }
+    public Double getHotScore() { return hotScore; }
+    public void setHotScore(Double hotScore) { this.hotScore = (hotScore != null) ? hotScore : 0.0; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
@@ -0,0 +1,50 @@
+package org.bosf.moondance.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "note_contents")
+public class NoteContent {
+
+    @Id
+    private Long noteId;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public NoteContent() {}
+
+    public NoteContent(Long noteId, String content, LocalDateTime updatedAt) {
+        this.noteId = noteId;
+        this.content = content;
+        this.updatedAt = updatedAt;
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    public static class Builder {
+        private Long noteId;
+        private String content;
+        private LocalDateTime updatedAt;
+
+        public Builder noteId(Long noteId) { this.noteId = noteId; return this; }
+        public Builder content(String content) { this.content = content; return this; }
+        public Builder updatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; return this; }
+
+        public NoteContent build() { return new NoteContent(noteId, content, updatedAt); }
+    }
+
+    public Long getNoteId() { return noteId; }
+    public void setNoteId(Long noteId) { this.noteId = noteId; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -18,6 +18,10 @@ public class Report {
     @JoinColumn(name = "note_id", nullable = false)
     private Note note;
 
+    // The note's school, so moderation queues filter without joining through the note
+    @Column(nullable = false, updatable = false)
+    private Long schoolId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reporter_id", nullable = false)
     private User reporter;
@@ -64,6 +68,7 @@ public class Report {
     public Report(
         Long id,
         Note note,
+        Long schoolId,
         User reporter,
         ReportReason reason,
         String description,
@@ -76,6 +81,7 @@ public class Report {
     ) {
         this.id = id;
         this.note = note;
+        this.schoolId = schoolId;
         this.reporter = reporter;
         this.reason = reason;
         this.description = description;
@@ -92,6 +98,7 @@ public class Report {
     public static class Builder {
         private Long id;
         private Note note;
+        private Long schoolId;
         private User reporter;
         private ReportReason reason;
         private String description;
@@ -104,6 +111,7 @@ public class Report {
 
         public Builder id(Long id) { this.id = id; return this; }
         public Builder note(Note note) { this.note = note; return this; }
+        public Builder schoolId(Long schoolId) { this.schoolId = schoolId; return this; }
         public Builder reporter(User reporter) { this.reporter = reporter; return this; }
         public Builder reason(ReportReason reason) { this.reason = reason; return this; }
         public Builder description(String description) { this.description = description; return this; }
@@ -115,7 +123,7 @@ public class Report {
         public Builder updatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; return this; }
 
         public Report build() {
-            return new Report(id, note, reporter, reason, description, status, reviewedBy, moderatorNotes, reviewedAt, createdAt, updatedAt);
+            return new Report(id, note, schoolId, reporter, reason, description, status, reviewedBy, moderatorNotes, reviewedAt, createdAt, updatedAt);
         }
     }
 
@@ -123,6 +131,8 @@ public class Report {
     public void setId(Long id) { this.id = id; }
     public Note getNote() { return note; }
     public void setNote(Note note) { this.note = note; }
+    public Long getSchoolId() { return schoolId; }
+    public void setSchoolId(Long schoolId) { this.schoolId = schoolId; }
     public User getReporter() { return reporter; }
     public void setReporter(User reporter) { this.reporter = reporter; }
     public ReportReason getReason() { return reason; }
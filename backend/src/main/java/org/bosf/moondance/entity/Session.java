@@ -1,6 +1,7 @@
 package org.bosf.moondance.entity;
 
 import jakarta.persistence.*;
+import org.bosf.moondance.config.CatalogCacheInvalidator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -11,6 +12,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "sessions")
+@EntityListeners(CatalogCacheInvalidator.class)
 public class Session {
 
     @Id
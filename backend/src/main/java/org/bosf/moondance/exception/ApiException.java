@@ -68,6 +68,13 @@ public class ApiException extends RuntimeException {
         }
     }
 
+    @ResponseStatus(HttpStatus.LENGTH_REQUIRED)
+    public static class LengthRequiredException extends ApiException {
+        public LengthRequiredException(String message) {
+            super(message, HttpStatus.LENGTH_REQUIRED, "LENGTH_REQUIRED");
+        }
+    }
+
     @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
     public static class RateLimitException extends ApiException {
         public RateLimitException(String message) {
@@ -11,7 +11,8 @@ import java.util.Optional;
 @Repository
 public interface CourseSessionRepository extends JpaRepository<CourseSession, Long> {
     
-    @Query("SELECT cs FROM CourseSession cs WHERE cs.course.id = :courseId ORDER BY cs.session.year DESC")
+    @Query("SELECT cs FROM CourseSession cs JOIN FETCH cs.course JOIN FETCH cs.session s LEFT JOIN FETCH cs.instructor " +
+           "WHERE cs.course.id = :courseId ORDER BY s.year DESC")
     List<CourseSession> findByCourseId(Long courseId);
     
     @Query("SELECT cs FROM CourseSession cs WHERE cs.session.id = :sessionId")
@@ -29,4 +30,7 @@ public interface CourseSessionRepository extends JpaRepository<CourseSession, Lo
     @Query("SELECT cs FROM CourseSession cs JOIN FETCH cs.course c JOIN FETCH cs.session s " +
            "WHERE c.department.school.id = :schoolId ORDER BY s.year DESC, c.code")
     List<CourseSession> findBySchoolId(Long schoolId);
+    
+    @Query("SELECT c.department.school.id FROM CourseSession cs JOIN cs.course c WHERE cs.id = :id")
+    Optional<Long> findSchoolIdById(Long id);
 }
@@ -0,0 +1,24 @@
+package org.bosf.moondance.repository;
+
+import org.bosf.moondance.entity.NoteContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NoteContentRepository extends JpaRepository<NoteContent, Long> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO note_contents (note_id, content, updated_at) VALUES (:noteId, :content, now()) " +
+                   "ON CONFLICT (note_id) DO UPDATE SET content = EXCLUDED.content, updated_at = now()",
+           nativeQuery = true)
+    void upsert(Long noteId, String content);
+    
+    @Modifying
+    @Query(value = "INSERT INTO note_contents (note_id, content, updated_at) " +
+                   "SELECT :targetNoteId, content, now() FROM note_contents WHERE note_id = :sourceNoteId " +
+                   "ON CONFLICT (note_id) DO UPDATE SET content = EXCLUDED.content, updated_at = now()",
+           nativeQuery = true)
+    void copy(Long sourceNoteId, Long targetNoteId);
+}
@@ -3,58 +3,138 @@ package org.bosf.moondance.repository;
 import org.bosf.moondance.entity.Note;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
     
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
     @Query("SELECT n FROM Note n WHERE n.courseSession.id = :courseSessionId AND n.deletedAt IS NULL ORDER BY n.createdAt DESC")
     Page<Note> findByCourseSessionId(Long courseSessionId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
     @Query("SELECT n FROM Note n WHERE n.uploader.id = :uploaderId AND n.deletedAt IS NULL ORDER BY n.createdAt DESC")
     Page<Note> findByUploaderId(Long uploaderId, Pageable pageable);
     
     @Query("SELECT n FROM Note n WHERE n.id = :id AND n.deletedAt IS NULL")
     Optional<Note> findActiveById(Long id);
     
-    @Query("SELECT n FROM Note n WHERE n.courseSession.course.department.school.id = :schoolId AND n.deletedAt IS NULL " +
-           "AND (LOWER(n.title) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(n.description) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "OR LOWER(n.extractedContent) LIKE LOWER(CONCAT('%', :query, '%')))")
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.id = :id AND n.deletedAt IS NULL")
+    Optional<Note> findActiveWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.id IN :ids AND n.deletedAt IS NULL")
+    List<Note> findActiveWithDetailsByIdIn(Collection<Long> ids);
+    
+    @Query(value = "SELECT n.* FROM notes n " +
+                   "WHERE n.school_id = :schoolId AND n.deleted_at IS NULL " +
+                   "AND n.search_vector @@ websearch_to_tsquery('english', :query) " +
+                   "ORDER BY ts_rank_cd(n.search_vector, websearch_to_tsquery('english', :query)) DESC, n.created_at DESC",
+           countQuery = "SELECT COUNT(*) FROM notes n " +
+                        "WHERE n.school_id = :schoolId AND n.deleted_at IS NULL " +
+                        "AND n.search_vector @@ websearch_to_tsquery('english', :query)",
+           nativeQuery = true)
     Page<Note> searchBySchoolId(Long schoolId, String query, Pageable pageable);
     
-    @Query("SELECT n FROM Note n WHERE n.courseSession.course.department.school.id = :schoolId AND n.deletedAt IS NULL " +
-           "ORDER BY n.downloadCount DESC, n.averageRating DESC")
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.schoolId = :schoolId AND n.deletedAt IS NULL " +
+           "ORDER BY n.hotScore DESC, n.id DESC")
     Page<Note> findTrendingBySchoolId(Long schoolId, Pageable pageable);
     
-    @Query("SELECT n FROM Note n WHERE n.courseSession.course.department.school.id = :schoolId AND n.deletedAt IS NULL " +
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.schoolId = :schoolId AND n.deletedAt IS NULL " +
            "ORDER BY n.createdAt DESC")
     Page<Note> findRecentBySchoolId(Long schoolId, Pageable pageable);
     
-    @Query("SELECT n FROM Note n WHERE n.type = :type AND n.courseSession.course.department.school.id = :schoolId " +
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.type = :type AND n.schoolId = :schoolId " +
            "AND n.deletedAt IS NULL ORDER BY n.createdAt DESC")
     Page<Note> findByTypeAndSchoolId(Note.NoteType type, Long schoolId, Pageable pageable);
     
-    @Query("SELECT n FROM Note n WHERE n.processingStatus = :status")
-    List<Note> findByProcessingStatus(Note.ProcessingStatus status);
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.courseSession.id = :courseSessionId AND n.deletedAt IS NULL " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Note> findByCourseSessionIdBefore(Long courseSessionId, LocalDateTime createdAt, Long id, Pageable pageable);
     
-    @Modifying
-    @Query("UPDATE Note n SET n.viewCount = n.viewCount + 1 WHERE n.id = :id")
-    void incrementViewCount(Long id);
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.uploader.id = :uploaderId AND n.deletedAt IS NULL " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Note> findByUploaderIdBefore(Long uploaderId, LocalDateTime createdAt, Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.schoolId = :schoolId AND n.deletedAt IS NULL " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Note> findRecentBySchoolIdBefore(Long schoolId, LocalDateTime createdAt, Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.type = :type AND n.schoolId = :schoolId " +
+           "AND n.deletedAt IS NULL " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Note> findByTypeAndSchoolIdBefore(Note.NoteType type, Long schoolId, LocalDateTime createdAt, Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"courseSession.course", "courseSession.session", "courseSession.instructor", "uploader"})
+    @Query("SELECT n FROM Note n WHERE n.schoolId = :schoolId AND n.deletedAt IS NULL " +
+           "AND n.hotScore <= :hotScore AND (n.hotScore < :hotScore OR n.id < :id) " +
+           "ORDER BY n.hotScore DESC, n.id DESC")
+    Slice<Note> findTrendingBySchoolIdBefore(Long schoolId, double hotScore, Long id, Pageable pageable);
     
     @Modifying
-    @Query("UPDATE Note n SET n.downloadCount = n.downloadCount + 1 WHERE n.id = :id")
-    void incrementDownloadCount(Long id);
+    @Query("UPDATE Note n SET n.thumbnailKey = :thumbnailKey, n.previewKey = :previewKey WHERE n.id = :id")
+    void updatePreviewKeys(Long id, String thumbnailKey, String previewKey);
+    
+    Optional<Note> findFirstByFileHashOrderByIdAsc(String fileHash);
     
-    @Query("SELECT COUNT(n) FROM Note n WHERE n.courseSession.id = :courseSessionId AND n.deletedAt IS NULL")
-    Long countByCourseSessionId(Long courseSessionId);
+    Optional<Note> findFirstByFileHashAndProcessingStatusOrderByIdAsc(String fileHash, Note.ProcessingStatus processingStatus);
     
-    @Query("SELECT SUM(n.downloadCount) FROM Note n WHERE n.courseSession.id = :courseSessionId AND n.deletedAt IS NULL")
-    Long sumDownloadsByCourseSessionId(Long courseSessionId);
+    boolean existsByFileKey(String fileKey);
+    
+    @Modifying
+    @Query("UPDATE Note n SET n.processingStatus = :status WHERE n.id = :id")
+    void updateProcessingStatus(Long id, Note.ProcessingStatus status);
+    
+    @Modifying
+    @Query(value = "UPDATE notes SET vote_count = vote_count + :voteDelta, " +
+                   "rating_sum = rating_sum + :ratingSumDelta, " +
+                   "rating_count = rating_count + :ratingCountDelta, " +
+                   "average_rating = CASE WHEN rating_count + :ratingCountDelta > 0 " +
+                   "THEN CAST(rating_sum + :ratingSumDelta AS DOUBLE PRECISION) / (rating_count + :ratingCountDelta) ELSE 0 END " +
+                   "WHERE id = :noteId",
+           nativeQuery = true)
+    void applyVoteDelta(Long noteId, int voteDelta, long ratingSumDelta, int ratingCountDelta);
+
+    @Modifying
+    @Query(value = "UPDATE notes n SET vote_count = s.vote_total, rating_count = s.rating_count, rating_sum = s.rating_sum, " +
+                   "average_rating = CASE WHEN s.rating_count > 0 THEN CAST(s.rating_sum AS DOUBLE PRECISION) / s.rating_count ELSE 0 END " +
+                   "FROM (SELECT n2.id, " +
+                   "COALESCE(SUM(CASE WHEN v.value > 0 THEN 1 WHEN v.value < 0 THEN -1 ELSE 0 END), 0) AS vote_total, " +
+                   "COUNT(v.rating) AS rating_count, COALESCE(SUM(v.rating), 0) AS rating_sum " +
+                   "FROM notes n2 LEFT JOIN votes v ON v.note_id = n2.id GROUP BY n2.id) s " +
+                   "WHERE n.id = s.id AND (n.vote_count <> s.vote_total OR n.rating_count <> s.rating_count OR n.rating_sum <> s.rating_sum)",
+           nativeQuery = true)
+    int reconcileVoteTotals();
+
+    @Query("SELECT n.courseSession.id AS courseSessionId, COUNT(n) AS noteCount, SUM(n.downloadCount) AS totalDownloads " +
+           "FROM Note n WHERE n.courseSession.id IN :courseSessionIds AND n.deletedAt IS NULL GROUP BY n.courseSession.id")
+    List<CourseSessionStats> aggregateStatsByCourseSessionIds(Collection<Long> courseSessionIds);
+
+    interface CourseSessionStats {
+        Long getCourseSessionId();
+        Long getNoteCount();
+        Long getTotalDownloads();
+    }
 }
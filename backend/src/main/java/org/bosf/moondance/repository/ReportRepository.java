@@ -21,8 +21,7 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r WHERE r.reporter.id = :reporterId ORDER BY r.createdAt DESC")
     List<Report> findByReporterId(Long reporterId);
     
-    @Query("SELECT r FROM Report r WHERE r.note.courseSession.course.department.school.id = :schoolId " +
-           "AND r.status = :status ORDER BY r.createdAt DESC")
+    @Query("SELECT r FROM Report r WHERE r.schoolId = :schoolId AND r.status = :status ORDER BY r.createdAt DESC")
     Page<Report> findBySchoolIdAndStatus(Long schoolId, Report.ReportStatus status, Pageable pageable);
     
     boolean existsByNoteIdAndReporterId(Long noteId, Long reporterId);
@@ -2,6 +2,7 @@ package org.bosf.moondance.repository;
 
 import org.bosf.moondance.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -17,10 +18,17 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
     @Query("SELECT t FROM Tag t WHERE t.name IN :names")
     Set<Tag> findByNameIn(Set<String> names);
     
+    @Modifying
+    @Query(value = "INSERT INTO tags (name) SELECT unnest(CAST(:names AS TEXT[])) ORDER BY 1 ON CONFLICT (name) DO NOTHING",
+           nativeQuery = true)
+    int insertMissing(String[] names);
+    
     @Query("SELECT t FROM Tag t WHERE LOWER(t.name) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<Tag> searchByName(String query);
     
-    @Query("SELECT t FROM Tag t JOIN t.notes n WHERE n.courseSession.course.department.school.id = :schoolId " +
-           "GROUP BY t ORDER BY COUNT(n) DESC")
-    List<Tag> findPopularBySchoolId(Long schoolId);
+    @Query(value = "SELECT t.* FROM school_tag_counts c JOIN tags t ON t.id = c.tag_id " +
+                   "WHERE c.school_id = :schoolId AND c.note_count > 0 " +
+                   "ORDER BY c.note_count DESC, c.tag_id LIMIT :limit",
+           nativeQuery = true)
+    List<Tag> findPopularBySchoolId(Long schoolId, int limit);
 }
@@ -5,6 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,17 +14,8 @@ public interface VoteRepository extends JpaRepository<Vote, Long> {
     
     Optional<Vote> findByNoteIdAndUserId(Long noteId, Long userId);
     
-    @Query("SELECT COUNT(v) FROM Vote v WHERE v.note.id = :noteId AND v.value > 0")
-    Long countPositiveByNoteId(Long noteId);
-    
-    @Query("SELECT COUNT(v) FROM Vote v WHERE v.note.id = :noteId AND v.value < 0")
-    Long countNegativeByNoteId(Long noteId);
-    
-    @Query("SELECT AVG(v.rating) FROM Vote v WHERE v.note.id = :noteId AND v.rating IS NOT NULL")
-    Double averageRatingByNoteId(Long noteId);
-    
-    @Query("SELECT COUNT(v) FROM Vote v WHERE v.note.id = :noteId AND v.rating IS NOT NULL")
-    Long countRatingsByNoteId(Long noteId);
+    @Query("SELECT v FROM Vote v WHERE v.note.id IN :noteIds AND v.user.id = :userId")
+    List<Vote> findByNoteIdInAndUserId(Collection<Long> noteIds, Long userId);
     
     boolean existsByNoteIdAndUserId(Long noteId, Long userId);
 }
@@ -1,15 +1,15 @@
 package org.bosf.moondance.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.bosf.moondance.entity.User;
-import org.bosf.moondance.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -17,18 +17,23 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserRepository userRepository;
-
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserRepository userRepository) {
+    private final UserPrincipalCache principalCache;
+    private final boolean trustTokenRoleForReads;
+
+    public JwtAuthenticationFilter(
+        JwtTokenProvider jwtTokenProvider,
+        UserPrincipalCache principalCache,
+        @Value("${app.security.trust-token-role-for-reads}") boolean trustTokenRoleForReads
+    ) {
         this.jwtTokenProvider = jwtTokenProvider;
-        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.trustTokenRoleForReads = trustTokenRoleForReads;
     }
 
     @Override
@@ -40,20 +45,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt) && jwtTokenProvider.isAccessToken(jwt)) {
-                String userId = jwtTokenProvider.getUserIdFromToken(jwt);
+            Claims claims = StringUtils.hasText(jwt) ? jwtTokenProvider.validateAndParse(jwt).orElse(null) : null;
 
-                User user = userRepository.findActiveById(Long.parseLong(userId)).orElse(null);
+            if (claims != null && jwtTokenProvider.isAccessToken(claims)) {
+                Long userId = Long.parseLong(claims.getSubject());
 
-                if (user != null) {
-                    List<SimpleGrantedAuthority> authorities = List.of(
-                            new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-                    );
+                UserPrincipal principal = trustTokenRoleForReads && isReadOnly(request)
+                        ? principalFromClaims(userId, claims)
+                        : null;
 
-                    UserPrincipal principal = new UserPrincipal(user);
+                if (principal == null) {
+                    principal = principalCache.get(userId);
+                }
 
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
 
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -67,6 +74,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private static boolean isReadOnly(HttpServletRequest request) {
+        String method = request.getMethod();
+
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    // Tokens issued before the email claim was added fall back to the cached lookup
+    private static UserPrincipal principalFromClaims(Long userId, Claims claims) {
+        String email = claims.get("email", String.class);
+        String role = claims.get("role", String.class);
+
+        if (email == null || role == null) {
+            return null;
+        }
+
+        Number schoolId = claims.get("school", Number.class);
+
+        return new UserPrincipal(
+                userId,
+                email,
+                User.UserRole.valueOf(role),
+                schoolId != null ? schoolId.longValue() : null
+        );
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
 
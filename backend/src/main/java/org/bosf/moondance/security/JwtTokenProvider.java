@@ -1,15 +1,25 @@
 package org.bosf.moondance.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
@@ -28,18 +38,55 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-expiration-ms}")
     private long refreshTokenExpiration;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${app.jwt.verified-cache-size}")
+    private long verifiedCacheSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+
+        // Entries live until the token itself expires, so a cache hit never outlives the token
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateAccessToken(Long userId, String email, String role) {
+    public String generateAccessToken(Long userId, String email, String role, Long schoolId) {
         Map<String, Object> claims = new HashMap<>();
 
+        claims.put("email", email);
         claims.put("role", role);
         claims.put("type", "access");
 
+        if (schoolId != null) {
+            claims.put("school", schoolId);
+        }
+
         return createToken(claims, String.valueOf(userId), accessTokenExpiration);
     }
 
@@ -57,7 +104,7 @@ public class JwtTokenProvider {
                 .subject(subject)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -80,21 +127,34 @@ public class JwtTokenProvider {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token and returns its claims, or empty if the token is
+     * invalid or expired. Verified tokens are remembered by hash until they
+     * expire so repeat requests skip the signature check.
+     */
+    public Optional<Claims> validateAndParse(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String key = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(key);
+
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
+            Claims claims = extractAllClaims(token);
+
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(key, claims);
+            }
 
-            return true;
+            return Optional.of(claims);
         } catch (SecurityException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
@@ -103,22 +163,38 @@ public class JwtTokenProvider {
             log.error("JWT token is expired: {}", ex.getMessage());
         } catch (UnsupportedJwtException ex) {
             log.error("JWT token is unsupported: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            log.error("Invalid JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty: {}", ex.getMessage());
         }
-        
-        return false;
+
+        return Optional.empty();
+    }
+
+    public boolean validateToken(String token) {
+        return validateAndParse(token).isPresent();
     }
 
-    public boolean isAccessToken(String token) {
-        return "access".equals(getTokenType(token));
+    public boolean isAccessToken(Claims claims) {
+        return "access".equals(claims.get("type", String.class));
     }
 
-    public boolean isRefreshToken(String token) {
-        return "refresh".equals(getTokenType(token));
+    public boolean isRefreshToken(Claims claims) {
+        return "refresh".equals(claims.get("type", String.class));
     }
 
     public long getAccessTokenExpiration() {
         return accessTokenExpiration;
     }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
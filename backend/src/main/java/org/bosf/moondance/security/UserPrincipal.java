@@ -30,6 +30,21 @@ public class UserPrincipal implements UserDetails {
         this.enabled = user.getBannedAt() == null && user.getDeletedAt() == null;
     }
 
+    /**
+     * Builds a principal from access token claims alone, without the password
+     * hash or profile fields. Used only when token roles are trusted for reads.
+     */
+    public UserPrincipal(Long id, String email, User.UserRole role, Long schoolId) {
+        this.id = id;
+        this.email = email;
+        this.password = null;
+        this.name = null;
+        this.role = role;
+        this.schoolId = schoolId;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        this.enabled = true;
+    }
+
     public Long getId() { 
         return id; 
     }
@@ -0,0 +1,78 @@
+package org.bosf.moondance.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bosf.moondance.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Short-lived cache of authenticated principals so the JWT filter does not
+ * hit Postgres on every request. Entries are evicted when the user row
+ * changes and, with Redis invalidation enabled, on every other instance too.
+ */
+@Component
+public class UserPrincipalCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    public static final String EVICTION_CHANNEL = "moondance:principal-evictions";
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean redisInvalidation;
+    private final Cache<Long, UserPrincipal> principals;
+
+    public UserPrincipalCache(
+        UserRepository userRepository,
+        StringRedisTemplate redisTemplate,
+        @Value("${app.security.principal-cache.ttl-seconds}") long ttlSeconds,
+        @Value("${app.security.principal-cache.max-size}") long maxSize,
+        @Value("${app.security.principal-cache.redis-invalidation}") boolean redisInvalidation
+    ) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.redisInvalidation = redisInvalidation;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public UserPrincipal get(Long userId) {
+        return principals.get(userId, id -> userRepository.findActiveById(id)
+                .map(UserPrincipal::new)
+                .orElse(null));
+    }
+
+    public void evict(Long userId) {
+        principals.invalidate(userId);
+
+        if (redisInvalidation) {
+            try {
+                redisTemplate.convertAndSend(EVICTION_CHANNEL, userId.toString());
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish principal eviction for user {}", userId, e);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            principals.invalidate(Long.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed principal eviction message: {}", body);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.bosf.moondance.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.bosf.moondance.entity.User;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that drops a user's cached principal whenever the
+ * user row is updated or removed, which covers bans, soft deletes, role and
+ * password changes. Eviction runs after commit so the next request reloads
+ * the committed state.
+ */
+@Component
+public class UserPrincipalInvalidator {
+
+    private final ObjectProvider<UserPrincipalCache> principalCache;
+
+    public UserPrincipalInvalidator(ObjectProvider<UserPrincipalCache> principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChange(User user) {
+        Long userId = user.getId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        UserPrincipalCache cache = principalCache.getIfAvailable();
+
+        if (cache != null) {
+            cache.evict(userId);
+        }
+    }
+}
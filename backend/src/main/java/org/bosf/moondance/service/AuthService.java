@@ -1,5 +1,6 @@
 package org.bosf.moondance.service;
 
+import io.jsonwebtoken.Claims;
 import org.bosf.moondance.dto.AuthDto;
 import org.bosf.moondance.dto.UserDto;
 import org.bosf.moondance.entity.School;
@@ -87,11 +88,11 @@ public class AuthService {
     public AuthDto.AuthResponse refreshToken(AuthDto.RefreshTokenRequest request) {
         String token = request.getRefreshToken();
 
-        if (!jwtTokenProvider.validateToken(token) || !jwtTokenProvider.isRefreshToken(token)) {
-            throw new ApiException.UnauthorizedException("Invalid refresh token");
-        }
+        Claims claims = jwtTokenProvider.validateAndParse(token)
+                .filter(jwtTokenProvider::isRefreshToken)
+                .orElseThrow(() -> new ApiException.UnauthorizedException("Invalid refresh token"));
 
-        Long userId = Long.parseLong(jwtTokenProvider.getUserIdFromToken(token));
+        Long userId = Long.parseLong(claims.getSubject());
         User user = userRepository.findActiveById(userId)
                 .orElseThrow(() -> new ApiException.UnauthorizedException("User not found"));
 
@@ -129,7 +130,8 @@ public class AuthService {
         String accessToken = jwtTokenProvider.generateAccessToken(
                 user.getId(),
                 user.getEmail(),
-                user.getRole().name()
+                user.getRole().name(),
+                user.getSchool() != null ? user.getSchool().getId() : null
         );
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
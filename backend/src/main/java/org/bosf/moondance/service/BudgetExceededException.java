@@ -0,0 +1,30 @@
+package org.bosf.moondance.service;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Thrown by {@link BudgetedContentHandler} to stop a parse that went over
+ * its time, allocation or page budget.
+ */
+class BudgetExceededException extends SAXException {
+
+    BudgetExceededException(String message) {
+        super(message);
+    }
+
+    static boolean isCauseOf(Throwable t) {
+        return find(t) != null;
+    }
+
+    static BudgetExceededException find(Throwable t) {
+        while (t != null) {
+            if (t instanceof BudgetExceededException budgetExceeded) {
+                return budgetExceeded;
+            }
+
+            t = t.getCause();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package org.bosf.moondance.service;
+
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+
+/**
+ * Wraps a Tika content handler and aborts the parse once it has run too
+ * long, allocated too much on the parsing thread, or emitted more than the
+ * allowed number of pages or slides.
+ * <p>
+ * The allocation budget counts every byte the thread has allocated since
+ * the handler was created, garbage included. It bounds how much work a
+ * parse may do, not how much heap it holds at once, and only covers the
+ * thread that constructs the handler, so create it on the parsing thread.
+ * Budgets are only checked when the parser emits content; a parser stuck
+ * without emitting anything has to be stopped from outside.
+ */
+class BudgetedContentHandler extends ContentHandlerDecorator {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long deadlineNanos;
+    private final long allocationBudgetBytes;
+    private final long startAllocatedBytes;
+    private final int maxPages;
+
+    private int pages;
+
+    BudgetedContentHandler(ContentHandler handler, Duration timeBudget, long allocationBudgetBytes, int maxPages) {
+        super(handler);
+
+        this.deadlineNanos = System.nanoTime() + timeBudget.toNanos();
+        this.allocationBudgetBytes = allocationBudgetBytes;
+        this.startAllocatedBytes = allocatedBytes();
+        this.maxPages = maxPages;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+        if ("div".equals(localName) && isPage(atts.getValue("class")) && ++pages > maxPages) {
+            throw new BudgetExceededException("page limit of " + maxPages + " reached");
+        }
+
+        checkBudget();
+
+        super.startElement(uri, localName, name, atts);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        checkBudget();
+
+        super.characters(ch, start, length);
+    }
+
+    private void checkBudget() throws SAXException {
+        if (System.nanoTime() > deadlineNanos) {
+            throw new BudgetExceededException("time budget exceeded");
+        }
+
+        long allocated = allocatedBytes();
+
+        if (allocated >= 0 && startAllocatedBytes >= 0 && allocated - startAllocatedBytes > allocationBudgetBytes) {
+            throw new BudgetExceededException("allocation budget of " + allocationBudgetBytes + " bytes exceeded");
+        }
+    }
+
+    // PDF pages and presentation slides
+    private static boolean isPage(String cssClass) {
+        return "page".equals(cssClass) || "slide-content".equals(cssClass);
+    }
+
+    // Cumulative bytes allocated by the current thread, or -1 where the JVM cannot tell
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+}
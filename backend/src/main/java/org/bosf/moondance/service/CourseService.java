@@ -1,5 +1,6 @@
 package org.bosf.moondance.service;
 
+import org.bosf.moondance.config.CacheConfig;
 import org.bosf.moondance.dto.CourseDto;
 import org.bosf.moondance.dto.ApiResponse;
 import org.bosf.moondance.entity.Course;
@@ -16,12 +17,16 @@ import org.bosf.moondance.repository.SchoolRepository;
 import org.bosf.moondance.repository.SessionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CourseService {
@@ -54,6 +59,7 @@ public class CourseService {
         this.noteRepository = noteRepository;
     }
 
+    @Cacheable(CacheConfig.SCHOOLS)
     @Transactional(readOnly = true)
     public List<CourseDto.SchoolResponse> getAllSchools() {
         return schoolRepository.findAllActive().stream()
@@ -69,6 +75,7 @@ public class CourseService {
         return CourseDto.SchoolResponse.fromEntity(school);
     }
 
+    @Cacheable(CacheConfig.DEPARTMENTS_BY_SCHOOL)
     @Transactional(readOnly = true)
     public List<CourseDto.DepartmentResponse> getDepartmentsBySchool(Long schoolId) {
         return departmentRepository.findBySchoolId(schoolId).stream()
@@ -91,6 +98,7 @@ public class CourseService {
                 .toList();
     }
 
+    @Cacheable(CacheConfig.COURSES_BY_SCHOOL)
     @Transactional(readOnly = true)
     public List<CourseDto.CourseResponse> getCoursesBySchool(Long schoolId) {
         return courseRepository.findBySchoolId(schoolId).stream()
@@ -113,6 +121,7 @@ public class CourseService {
         return CourseDto.CourseResponse.fromEntity(course);
     }
 
+    @Cacheable(CacheConfig.SESSIONS_BY_SCHOOL)
     @Transactional(readOnly = true)
     public List<CourseDto.SessionResponse> getSessionsBySchool(Long schoolId) {
         return sessionRepository.findBySchoolId(schoolId).stream()
@@ -120,6 +129,7 @@ public class CourseService {
                 .toList();
     }
 
+    @Cacheable(CacheConfig.INSTRUCTORS_BY_SCHOOL)
     @Transactional(readOnly = true)
     public List<CourseDto.InstructorResponse> getInstructorsBySchool(Long schoolId) {
         return instructorRepository.findBySchoolId(schoolId).stream()
@@ -136,30 +146,37 @@ public class CourseService {
 
     @Transactional(readOnly = true)
     public List<CourseDto.CourseSessionResponse> getCourseSessionsByCourse(Long courseId) {
-        List<CourseSession> sessions = courseSessionRepository.findByCourseId(courseId);
+        return toResponsesWithStats(courseSessionRepository.findByCourseId(courseId));
+    }
+
+    @Transactional(readOnly = true)
+    public CourseDto.CourseSessionResponse getCourseSessionById(Long id) {
+        CourseSession cs = courseSessionRepository.findById(id)
+                .orElseThrow(() -> new ApiException.NotFoundException("CourseSession", id));
+
+        return toResponsesWithStats(List.of(cs)).getFirst();
+    }
+
+    private List<CourseDto.CourseSessionResponse> toResponsesWithStats(List<CourseSession> sessions) {
+        if (sessions.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, NoteRepository.CourseSessionStats> stats = noteRepository
+                .aggregateStatsByCourseSessionIds(sessions.stream().map(CourseSession::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(NoteRepository.CourseSessionStats::getCourseSessionId, Function.identity()));
 
         return sessions.stream()
                 .map(cs -> {
                     CourseDto.CourseSessionResponse response = CourseDto.CourseSessionResponse.fromEntity(cs);
+                    NoteRepository.CourseSessionStats sessionStats = stats.get(cs.getId());
 
-                    response.setNoteCount(noteRepository.countByCourseSessionId(cs.getId()));
-                    response.setTotalDownloads(noteRepository.sumDownloadsByCourseSessionId(cs.getId()));
+                    response.setNoteCount(sessionStats != null ? sessionStats.getNoteCount() : 0L);
+                    response.setTotalDownloads(sessionStats != null ? sessionStats.getTotalDownloads() : 0L);
 
                     return response;
                 })
                 .toList();
     }
-
-    @Transactional(readOnly = true)
-    public CourseDto.CourseSessionResponse getCourseSessionById(Long id) {
-        CourseSession cs = courseSessionRepository.findById(id)
-                .orElseThrow(() -> new ApiException.NotFoundException("CourseSession", id));
-
-        CourseDto.CourseSessionResponse response = CourseDto.CourseSessionResponse.fromEntity(cs);
-
-        response.setNoteCount(noteRepository.countByCourseSessionId(id));
-        response.setTotalDownloads(noteRepository.sumDownloadsByCourseSessionId(id));
-        
-        return response;
-    }
 }
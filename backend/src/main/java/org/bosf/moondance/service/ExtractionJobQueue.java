@@ -0,0 +1,136 @@
+package org.bosf.moondance.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Postgres-backed queue of text extraction jobs, one row per note. Workers
+ * on any instance claim due jobs with FOR UPDATE SKIP LOCKED and hold them
+ * under a lease, so a job whose worker dies is picked up again once the
+ * lease runs out.
+ */
+@Component
+public class ExtractionJobQueue {
+
+    public record ClaimedJob(Long noteId, int attempts) {}
+
+    public record QueueStats(long depth, double lagSeconds) {}
+
+    // A job whose lease ran out never reached handleFailure, most likely because it took its worker down.
+    // Once it has used up its attempts it is failed here instead of being handed to the next worker.
+    private static final String CLAIM_SQL =
+            "WITH exhausted AS (" +
+            "UPDATE extraction_jobs SET status = 'FAILED', locked_by = NULL, lease_expires_at = NULL, " +
+            "last_error = 'Lease expired on the last attempt', updated_at = now() " +
+            "WHERE status = 'RUNNING' AND lease_expires_at < now() AND attempts >= ? " +
+            "RETURNING note_id), " +
+            "failed_notes AS (" +
+            "UPDATE notes SET processing_status = 'FAILED' WHERE id IN (SELECT note_id FROM exhausted)) " +
+            "UPDATE extraction_jobs SET status = 'RUNNING', attempts = attempts + 1, locked_by = ?, " +
+            "lease_expires_at = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE note_id IN (" +
+            "SELECT note_id FROM extraction_jobs " +
+            "WHERE (status = 'QUEUED' AND run_after <= now()) " +
+            "OR (status = 'RUNNING' AND lease_expires_at < now() AND attempts < ?) " +
+            "ORDER BY run_after LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING note_id, attempts";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExtractionJobQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Queues a note for extraction. Runs in the caller's transaction, so the
+     * job only becomes visible once the note itself is committed.
+     */
+    public void enqueue(Long noteId) {
+        jdbcTemplate.update(
+                "INSERT INTO extraction_jobs (note_id) VALUES (?) " +
+                "ON CONFLICT (note_id) DO UPDATE SET status = 'QUEUED', attempts = 0, run_after = now(), " +
+                "locked_by = NULL, lease_expires_at = NULL, last_error = NULL, updated_at = now()",
+                noteId
+        );
+    }
+
+    public List<ClaimedJob> claim(String workerId, int limit, Duration lease, int maxAttempts) {
+        return jdbcTemplate.query(
+                CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedJob(rs.getLong("note_id"), rs.getInt("attempts")),
+                maxAttempts,
+                workerId,
+                lease.toSeconds(),
+                maxAttempts,
+                limit
+        );
+    }
+
+    public int extendLeases(String workerId, Collection<Long> noteIds, Duration lease) {
+        if (noteIds.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(con -> {
+            Array ids = con.createArrayOf("bigint", noteIds.toArray());
+            var ps = con.prepareStatement(
+                    "UPDATE extraction_jobs SET lease_expires_at = now() + make_interval(secs => ?), updated_at = now() " +
+                    "WHERE locked_by = ? AND status = 'RUNNING' AND note_id = ANY(?)"
+            );
+
+            ps.setLong(1, lease.toSeconds());
+            ps.setString(2, workerId);
+            ps.setArray(3, ids);
+
+            return ps;
+        });
+    }
+
+    public void complete(String workerId, Long noteId) {
+        jdbcTemplate.update("DELETE FROM extraction_jobs WHERE note_id = ? AND locked_by = ?", noteId, workerId);
+    }
+
+    public void retry(String workerId, Long noteId, Instant runAfter, String error) {
+        jdbcTemplate.update(
+                "UPDATE extraction_jobs SET status = 'QUEUED', run_after = ?, locked_by = NULL, lease_expires_at = NULL, " +
+                "last_error = ?, updated_at = now() WHERE note_id = ? AND locked_by = ?",
+                Timestamp.from(runAfter), error, noteId, workerId
+        );
+    }
+
+    public void fail(String workerId, Long noteId, String error) {
+        jdbcTemplate.update(
+                "UPDATE extraction_jobs SET status = 'FAILED', locked_by = NULL, lease_expires_at = NULL, " +
+                "last_error = ?, updated_at = now() WHERE note_id = ? AND locked_by = ?",
+                error, noteId, workerId
+        );
+    }
+
+    /**
+     * Hands a claimed job back without counting the attempt, e.g. when the
+     * local executor turned it away.
+     */
+    public void release(String workerId, Long noteId) {
+        jdbcTemplate.update(
+                "UPDATE extraction_jobs SET status = 'QUEUED', attempts = GREATEST(attempts - 1, 0), locked_by = NULL, " +
+                "lease_expires_at = NULL, updated_at = now() WHERE note_id = ? AND locked_by = ?",
+                noteId, workerId
+        );
+    }
+
+    public QueueStats stats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) AS depth, " +
+                "COALESCE(EXTRACT(EPOCH FROM now() - MIN(run_after)), 0) AS lag " +
+                "FROM extraction_jobs WHERE status = 'QUEUED' AND run_after <= now()",
+                (rs, rowNum) -> new QueueStats(rs.getLong("depth"), rs.getDouble("lag"))
+        );
+    }
+}
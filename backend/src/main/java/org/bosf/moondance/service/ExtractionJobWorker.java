@@ -0,0 +1,178 @@
+package org.bosf.moondance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bosf.moondance.entity.Note;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Polls the extraction job table and runs claimed jobs on the local
+ * extraction executor. Any number of instances can run this side by side;
+ * each only claims as many jobs as it has idle threads.
+ */
+@Component
+public class ExtractionJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionJobWorker.class);
+
+    private final ExtractionJobQueue queue;
+    private final TextExtractionService textExtractionService;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final String workerId;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<ExtractionJobQueue.QueueStats> stats =
+            new AtomicReference<>(new ExtractionJobQueue.QueueStats(0, 0));
+
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer duration;
+
+    @Value("${app.extraction.lease-seconds}")
+    private long leaseSeconds;
+
+    @Value("${app.extraction.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${app.extraction.backoff-base-seconds}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.extraction.backoff-max-seconds}")
+    private long backoffMaxSeconds;
+
+    public ExtractionJobWorker(
+        ExtractionJobQueue queue,
+        TextExtractionService textExtractionService,
+        @Qualifier("textExtractionExecutor") ThreadPoolTaskExecutor executor,
+        MeterRegistry meterRegistry
+    ) {
+        this.queue = queue;
+        this.textExtractionService = textExtractionService;
+        this.executor = executor;
+        this.workerId = hostname() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        this.succeeded = Counter.builder("moondance.extraction.jobs").tag("result", "succeeded").register(meterRegistry);
+        this.retried = Counter.builder("moondance.extraction.jobs").tag("result", "retried").register(meterRegistry);
+        this.failed = Counter.builder("moondance.extraction.jobs").tag("result", "failed").register(meterRegistry);
+        this.duration = Timer.builder("moondance.extraction.duration")
+                .description("Time spent extracting text from one note")
+                .register(meterRegistry);
+
+        Gauge.builder("moondance.extraction.queue.depth", stats, s -> s.get().depth())
+                .description("Extraction jobs due and waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("moondance.extraction.queue.lag", stats, s -> s.get().lagSeconds())
+                .description("Seconds the oldest due extraction job has been waiting")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("moondance.extraction.in-flight", inFlight, Set::size)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.extraction.poll-interval-ms}")
+    public void poll() {
+        try {
+            stats.set(queue.stats());
+        } catch (RuntimeException e) {
+            log.warn("Failed to read extraction queue stats", e);
+        }
+
+        int idle = executor.getMaxPoolSize() - executor.getActiveCount();
+
+        if (idle <= 0) {
+            return;
+        }
+
+        List<ExtractionJobQueue.ClaimedJob> jobs = queue.claim(workerId, idle, Duration.ofSeconds(leaseSeconds), maxAttempts);
+
+        for (ExtractionJobQueue.ClaimedJob job : jobs) {
+            inFlight.add(job.noteId());
+
+            try {
+                executor.execute(() -> run(job));
+            } catch (TaskRejectedException e) {
+                inFlight.remove(job.noteId());
+                queue.release(workerId, job.noteId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.extraction.heartbeat-interval-ms}")
+    public void heartbeat() {
+        try {
+            queue.extendLeases(workerId, Set.copyOf(inFlight), Duration.ofSeconds(leaseSeconds));
+        } catch (RuntimeException e) {
+            log.warn("Failed to extend extraction job leases", e);
+        }
+    }
+
+    private void run(ExtractionJobQueue.ClaimedJob job) {
+        Long noteId = job.noteId();
+        Timer.Sample sample = Timer.start();
+
+        try {
+            textExtractionService.extract(noteId);
+            queue.complete(workerId, noteId);
+            succeeded.increment();
+        } catch (Exception e) {
+            handleFailure(job, e);
+        } finally {
+            sample.stop(duration);
+            inFlight.remove(noteId);
+        }
+    }
+
+    private void handleFailure(ExtractionJobQueue.ClaimedJob job, Exception e) {
+        Long noteId = job.noteId();
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+
+        try {
+            if (job.attempts() >= maxAttempts) {
+                log.error("Text extraction failed for note {} after {} attempts", noteId, job.attempts(), e);
+
+                queue.fail(workerId, noteId, error);
+                textExtractionService.updateStatus(noteId, Note.ProcessingStatus.FAILED);
+                failed.increment();
+            } else {
+                long delay = Math.min(backoffBaseSeconds << Math.min(job.attempts() - 1, 20), backoffMaxSeconds);
+
+                log.warn("Text extraction failed for note {} (attempt {}), retrying in {}s", noteId, job.attempts(), delay, e);
+
+                queue.retry(workerId, noteId, Instant.now().plusSeconds(delay), error);
+                textExtractionService.updateStatus(noteId, Note.ProcessingStatus.PENDING);
+                retried.increment();
+            }
+        } catch (RuntimeException ex) {
+            // The lease runs out and another worker picks the job up again
+            log.error("Failed to record extraction failure for note {}", noteId, ex);
+        }
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.entity.Note;
+import org.bosf.moondance.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset cursors for the note feeds. A cursor holds the sort key of the last
+ * note on a page and is handed to clients as an opaque base64url token.
+ * Trending cursors can also point into a {@link TrendingSnapshots} ranking,
+ * in which case the sort key is the score the note had in that snapshot.
+ */
+public final class FeedCursor {
+
+    public record Recent(LocalDateTime createdAt, Long id) {}
+
+    // A null snapshotId means plain keyset paging on the live scores
+    public record Trending(String snapshotId, int offset, double hotScore, Long id) {}
+
+    // Sort ahead of every real note, so the first page runs the same query as the rest
+    private static final Recent FIRST_RECENT = new Recent(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+    private static final Trending FIRST_TRENDING = new Trending(null, 0, Double.MAX_VALUE, Long.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    private FeedCursor() {}
+
+    public static String recent(Note note) {
+        return encode("r", note.getCreatedAt().toString(), note.getId().toString());
+    }
+
+    public static String trending(Note note) {
+        return trending(null, 0, note.getHotScore(), note.getId());
+    }
+
+    public static String trending(String snapshotId, int offset, double hotScore, Long id) {
+        return encode("t", snapshotId != null ? snapshotId : "", Integer.toString(offset), Double.toString(hotScore), id.toString());
+    }
+
+    public static Recent parseRecent(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_RECENT;
+        }
+
+        String[] parts = decode(cursor, "r", 2);
+
+        try {
+            return new Recent(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    public static Trending parseTrending(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_TRENDING;
+        }
+
+        String[] parts = decode(cursor, "t", 4);
+        Trending trending;
+
+        try {
+            trending = new Trending(parts[0].isEmpty() ? null : parts[0], Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+
+        if (trending.offset() < 0) {
+            throw invalid();
+        }
+
+        return trending;
+    }
+
+    private static String encode(String kind, String... values) {
+        String raw = kind + SEPARATOR + String.join(SEPARATOR, values);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, String kind, int size) {
+        String raw;
+
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+
+        String[] parts = raw.split("\\" + SEPARATOR, -1);
+
+        if (parts.length != size + 1 || !parts[0].equals(kind)) {
+            throw invalid();
+        }
+
+        String[] values = new String[size];
+        System.arraycopy(parts, 1, values, 0, size);
+
+        return values;
+    }
+
+    private static ApiException.BadRequestException invalid() {
+        return new ApiException.BadRequestException("Invalid cursor");
+    }
+}
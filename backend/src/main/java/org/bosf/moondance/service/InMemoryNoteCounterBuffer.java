@@ -0,0 +1,89 @@
+package org.bosf.moondance.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@ConditionalOnProperty(name = "app.counters.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryNoteCounterBuffer implements NoteCounterBuffer {
+
+    // Increments share the read lock; drain takes the write lock so no increment is still writing into the buffers it swaps out
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<Counter, ConcurrentHashMap<Long, LongAdder>> current = newBuffers();
+
+    private static Map<Counter, ConcurrentHashMap<Long, LongAdder>> newBuffers() {
+        Map<Counter, ConcurrentHashMap<Long, LongAdder>> buffers = new EnumMap<>(Counter.class);
+
+        for (Counter counter : Counter.values()) {
+            buffers.put(counter, new ConcurrentHashMap<>());
+        }
+
+        return buffers;
+    }
+
+    @Override
+    public void increment(Long noteId, Counter counter) {
+        swapLock.readLock().lock();
+
+        try {
+            current.get(counter).computeIfAbsent(noteId, id -> new LongAdder()).increment();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, Delta> drain() {
+        Map<Counter, ConcurrentHashMap<Long, LongAdder>> drained;
+
+        swapLock.writeLock().lock();
+
+        try {
+            drained = current;
+            current = newBuffers();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Map<Long, Delta> deltas = new HashMap<>();
+
+        drained.forEach((counter, adders) -> adders.forEach((noteId, adder) ->
+                deltas.merge(noteId, Delta.of(counter, adder.sum()), Delta::plus)));
+
+        return deltas;
+    }
+
+    @Override
+    public void restore(Map<Long, Delta> deltas) {
+        swapLock.readLock().lock();
+
+        try {
+            Map<Counter, ConcurrentHashMap<Long, LongAdder>> buffers = current;
+
+            deltas.forEach((noteId, delta) -> {
+                buffers.get(Counter.VIEW).computeIfAbsent(noteId, id -> new LongAdder()).add(delta.views());
+                buffers.get(Counter.DOWNLOAD).computeIfAbsent(noteId, id -> new LongAdder()).add(delta.downloads());
+                buffers.get(Counter.UPVOTE).computeIfAbsent(noteId, id -> new LongAdder()).add(delta.upvotes());
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long pendingIncrements() {
+        return current.values().stream()
+                .flatMap(adders -> adders.values().stream())
+                .mapToLong(LongAdder::sum)
+                .sum();
+    }
+}
@@ -0,0 +1,93 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.exception.ApiException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps objects on the heap for CI and other runs without an object store.
+ * Nothing survives a restart or is shared between instances, and the
+ * presigned URLs are placeholders that cannot be fetched, so files only go
+ * in through the multipart upload endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private static final String URL_SCHEME = "memory:";
+
+    private record Blob(byte[] bytes, String contentType, String sha256) {}
+
+    private final Map<String, Blob> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        byte[] bytes = in.readAllBytes();
+
+        if (bytes.length != size) {
+            throw new IOException("Expected " + size + " bytes for " + key + " but received " + bytes.length);
+        }
+
+        String sha256 = HexFormat.of().formatHex(StorageService.newSha256().digest(bytes));
+
+        objects.put(key, new Blob(bytes, contentType, sha256));
+    }
+
+    @Override
+    public InputStream get(String key) {
+        return new ByteArrayInputStream(blob(key).bytes());
+    }
+
+    @Override
+    public Optional<StoredObject> describe(String key) {
+        return Optional.ofNullable(objects.get(key))
+                .map(blob -> new StoredObject(blob.bytes().length, blob.contentType(), blob.sha256()));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        // Blobs are never modified in place, so the copy can share the bytes
+        objects.put(targetKey, blob(sourceKey));
+    }
+
+    @Override
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public PresignedUpload presignPut(String key, String contentType, long size, String sha256, Duration expiration) {
+        return new PresignedUpload(URL_SCHEME + key, Map.of(HttpHeaders.CONTENT_TYPE, contentType), Instant.now().plus(expiration));
+    }
+
+    @Override
+    public String presignGet(String key, String contentDisposition, Duration expiration) {
+        return URL_SCHEME + key;
+    }
+
+    private Blob blob(String key) {
+        Blob blob = objects.get(key);
+
+        if (blob == null) {
+            throw new ApiException.NotFoundException("File not found: " + key);
+        }
+
+        return blob;
+    }
+}
@@ -0,0 +1,327 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.exception.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Keeps objects as plain files under {@code app.storage.local.root} for
+ * deployments without an object store. Presigned URLs point at
+ * FileController and carry an HMAC over the key and expiry, plus the
+ * declared size, type and checksum for uploads, so they grant the same
+ * access an S3 signature would.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String URL_PREFIX = "/api/v1/files/";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Path root;
+    private final Path metaRoot;
+    private final Path tmpRoot;
+    private final String baseUrl;
+    private final SecretKeySpec signingKey;
+
+    public LocalStorageBackend(
+        @Value("${app.storage.local.root}") String root,
+        @Value("${app.storage.local.base-url}") String baseUrl,
+        @Value("${app.storage.local.signing-secret}") String signingSecret
+    ) throws IOException {
+        if (signingSecret.isBlank()) {
+            throw new IllegalStateException("app.storage.local.signing-secret is required for local storage");
+        }
+
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        // Keys never have dot segments, so these cannot collide with objects
+        this.metaRoot = this.root.resolve(".meta");
+        this.tmpRoot = this.root.resolve(".tmp");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+
+        Files.createDirectories(metaRoot);
+        Files.createDirectories(tmpRoot);
+    }
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        write(key, in, size, contentType, null, false);
+    }
+
+    /**
+     * Stores the body of a PUT to a URL from {@link #presignPut}, once the
+     * signature checks out and the body matches the signed checksum.
+     */
+    public void acceptUpload(
+        String key,
+        InputStream in,
+        long size,
+        String contentType,
+        String sha256,
+        long expires,
+        String signature
+    ) throws IOException {
+        verify(signature, expires, "PUT", key, Long.toString(expires), contentType, Long.toString(size), sha256);
+        write(key, in, size, contentType, sha256, true);
+    }
+
+    public void verifyDownload(String key, String contentDisposition, long expires, String signature) {
+        verify(signature, expires, "GET", key, Long.toString(expires), contentDisposition != null ? contentDisposition : "");
+    }
+
+    @Override
+    public InputStream get(String key) {
+        try {
+            return Files.newInputStream(pathOf(key));
+        } catch (NoSuchFileException e) {
+            throw new ApiException.NotFoundException("File not found: " + key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> describe(String key) {
+        try {
+            long size = Files.size(pathOf(key));
+            Properties meta = readMeta(key);
+
+            return Optional.of(new StoredObject(size, meta.getProperty("content-type", DEFAULT_CONTENT_TYPE), meta.getProperty("sha256")));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(pathOf(key));
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        try (InputStream in = get(sourceKey)) {
+            StoredObject source = describe(sourceKey)
+                    .orElseThrow(() -> new ApiException.NotFoundException("File not found: " + sourceKey));
+
+            write(targetKey, in, source.size(), source.contentType(), source.sha256(), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(pathOf(key));
+            Files.deleteIfExists(metaPathOf(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public PresignedUpload presignPut(String key, String contentType, long size, String sha256, Duration expiration) {
+        pathOf(key);
+
+        long expires = Instant.now().plus(expiration).getEpochSecond();
+        String signature = sign("PUT", key, Long.toString(expires), contentType, Long.toString(size), sha256);
+
+        String url = baseUrl + URL_PREFIX + key
+                + "?expires=" + expires
+                + "&sha256=" + sha256
+                + "&signature=" + signature;
+
+        return new PresignedUpload(url, Map.of(HttpHeaders.CONTENT_TYPE, contentType), Instant.ofEpochSecond(expires));
+    }
+
+    @Override
+    public String presignGet(String key, String contentDisposition, Duration expiration) {
+        pathOf(key);
+
+        long expires = Instant.now().plus(expiration).getEpochSecond();
+        String signature = sign("GET", key, Long.toString(expires), contentDisposition != null ? contentDisposition : "");
+
+        StringBuilder url = new StringBuilder(baseUrl).append(URL_PREFIX).append(key)
+                .append("?expires=").append(expires);
+
+        if (contentDisposition != null) {
+            url.append("&disposition=").append(URLEncoder.encode(contentDisposition, StandardCharsets.UTF_8));
+        }
+
+        return url.append("&signature=").append(signature).toString();
+    }
+
+    /**
+     * File behind a key, rejecting keys that are empty, have dot segments
+     * or would resolve outside the storage root.
+     */
+    public Path pathOf(String key) {
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                throw new ApiException.BadRequestException("Invalid storage key");
+            }
+        }
+
+        Path path = root.resolve(key).normalize();
+
+        if (!path.startsWith(root)) {
+            throw new ApiException.BadRequestException("Invalid storage key");
+        }
+
+        return path;
+    }
+
+    private Path metaPathOf(String key) {
+        pathOf(key);
+
+        return metaRoot.resolve(key + ".properties");
+    }
+
+    // Writes to a scratch file first, so readers only ever see complete objects
+    // A body from a client that does not match its signed size is the client's error, not a storage failure
+    private void write(String key, InputStream in, long size, String contentType, String expectedSha256, boolean fromClient) throws IOException {
+        Path target = pathOf(key);
+        Path tmp = Files.createTempFile(tmpRoot, "object-", null);
+
+        try {
+            MessageDigest digest = StorageService.newSha256();
+            long written;
+
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                written = copy(in, out, digest, size);
+            }
+
+            if (written != size) {
+                if (fromClient) {
+                    throw new ApiException.BadRequestException("Uploaded file does not match the signed size of " + size + " bytes");
+                }
+
+                throw new IOException("Expected " + size + " bytes for " + key + " but received " + written);
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+                throw new ApiException.BadRequestException("Uploaded file does not match the signed checksum");
+            }
+
+            writeMeta(key, contentType != null ? contentType : DEFAULT_CONTENT_TYPE, sha256);
+
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Stops one byte past the expected size, so an oversized body cannot fill the disk
+    private static long copy(InputStream in, OutputStream out, MessageDigest digest, long size) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long written = 0;
+        int read;
+
+        while (written <= size && (read = in.read(buffer, 0, (int) Math.min(buffer.length, size + 1 - written))) > 0) {
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+            written += read;
+        }
+
+        return written;
+    }
+
+    private void writeMeta(String key, String contentType, String sha256) throws IOException {
+        Path target = metaPathOf(key);
+        Path tmp = Files.createTempFile(tmpRoot, "meta-", null);
+
+        try {
+            Properties meta = new Properties();
+
+            meta.setProperty("content-type", contentType);
+            meta.setProperty("sha256", sha256);
+
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                meta.store(out, null);
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Properties readMeta(String key) throws IOException {
+        Properties meta = new Properties();
+
+        try (InputStream in = Files.newInputStream(metaPathOf(key))) {
+            meta.load(in);
+        } catch (NoSuchFileException e) {
+            // Files copied in by hand have no metadata; the defaults apply
+        }
+
+        return meta;
+    }
+
+    private void verify(String signature, long expires, String... parts) {
+        if (Instant.now().getEpochSecond() > expires) {
+            throw new ApiException.ForbiddenException("URL has expired");
+        }
+
+        byte[] provided;
+
+        try {
+            provided = Base64.getUrlDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException.ForbiddenException("Invalid URL signature");
+        }
+
+        if (!MessageDigest.isEqual(mac(parts), provided)) {
+            throw new ApiException.ForbiddenException("Invalid URL signature");
+        }
+    }
+
+    private String sign(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac(parts));
+    }
+
+    private byte[] mac(String... parts) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+
+            mac.init(signingKey);
+
+            return mac.doFinal(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
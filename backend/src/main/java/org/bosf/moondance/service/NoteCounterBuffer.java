@@ -0,0 +1,37 @@
+package org.bosf.moondance.service;
+
+import java.util.Map;
+
+/**
+ * Buffers view, download and upvote increments so hot notes are not
+ * row-locked on every request. {@link NoteCounterFlusher} drains the buffer periodically
+ * and applies the totals in batched UPDATEs.
+ */
+public interface NoteCounterBuffer {
+
+    enum Counter {
+        VIEW, DOWNLOAD, UPVOTE
+    }
+
+    record Delta(long views, long downloads, long upvotes) {
+        public Delta plus(Delta other) {
+            return new Delta(views + other.views, downloads + other.downloads, upvotes + other.upvotes);
+        }
+
+        public static Delta of(Counter counter, long amount) {
+            return switch (counter) {
+                case VIEW -> new Delta(amount, 0, 0);
+                case DOWNLOAD -> new Delta(0, amount, 0);
+                case UPVOTE -> new Delta(0, 0, amount);
+            };
+        }
+    }
+
+    void increment(Long noteId, Counter counter);
+
+    Map<Long, Delta> drain();
+
+    void restore(Map<Long, Delta> deltas);
+
+    long pendingIncrements();
+}
@@ -0,0 +1,121 @@
+package org.bosf.moondance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class NoteCounterFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteCounterFlusher.class);
+
+    // Log-add of the new contribution: ln(e^a + e^b) = max(a, b) + ln(1 + e^-|a - b|). Past a gap of
+    // MAX_LOG_ADD_GAP the correction is below 1e-13, and Postgres raises an underflow error instead of
+    // returning 0 once exp() goes below ~1e-308, which would fail every flush holding a long-idle note.
+    private static final String FLUSH_SQL =
+            "UPDATE notes SET view_count = view_count + ?, download_count = download_count + ?, " +
+            "hot_score = GREATEST(hot_score, ?) + " +
+            "CASE WHEN abs(hot_score - ?) > " + TrendingScorer.MAX_LOG_ADD_GAP + " THEN 0 " +
+            "ELSE ln(1 + exp(-abs(hot_score - ?))) END WHERE id = ?";
+
+    private final NoteCounterBuffer buffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendingScorer trendingScorer;
+
+    private final Counter flushedViews;
+    private final Counter flushedDownloads;
+    private final Counter flushedUpvotes;
+    private final Counter flushFailures;
+
+    public NoteCounterFlusher(
+        NoteCounterBuffer buffer,
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        TrendingScorer trendingScorer,
+        MeterRegistry meterRegistry
+    ) {
+        this.buffer = buffer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.trendingScorer = trendingScorer;
+
+        Gauge.builder("moondance.counters.pending", this, NoteCounterFlusher::pendingIncrements)
+                .description("View, download and upvote increments waiting to be flushed")
+                .register(meterRegistry);
+
+        this.flushedViews = Counter.builder("moondance.counters.flushed").tag("counter", "view").register(meterRegistry);
+        this.flushedDownloads = Counter.builder("moondance.counters.flushed").tag("counter", "download").register(meterRegistry);
+        this.flushedUpvotes = Counter.builder("moondance.counters.flushed").tag("counter", "upvote").register(meterRegistry);
+        this.flushFailures = Counter.builder("moondance.counters.flush.failures").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms}")
+    public synchronized void flush() {
+        Map<Long, NoteCounterBuffer.Delta> deltas = buffer.drain();
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // The whole batch counts as observed now; the flush interval is negligible next to the half-life
+        Instant now = Instant.now();
+
+        // Sorted by id so concurrent flushes from several instances lock rows in the same order
+        List<Object[]> rows = deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> {
+                    NoteCounterBuffer.Delta delta = e.getValue();
+                    double contribution = trendingScorer.contribution(delta, now);
+
+                    return new Object[] { delta.views(), delta.downloads(), contribution, contribution, contribution, e.getKey() };
+                })
+                .toList();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, rows));
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush counters for {} notes, re-buffering", deltas.size(), e);
+
+            flushFailures.increment();
+            buffer.restore(deltas);
+
+            return;
+        }
+
+        deltas.values().forEach(delta -> {
+            flushedViews.increment(delta.views());
+            flushedDownloads.increment(delta.downloads());
+            flushedUpvotes.increment(delta.upvotes());
+        });
+
+        log.debug("Flushed counters for {} notes", deltas.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing buffered note counters before shutdown");
+
+        flush();
+    }
+
+    private double pendingIncrements() {
+        try {
+            return buffer.pendingIncrements();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
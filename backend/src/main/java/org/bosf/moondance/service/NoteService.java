@@ -6,25 +6,37 @@ import org.bosf.moondance.entity.Note;
 import org.bosf.moondance.entity.CourseSession;
 import org.bosf.moondance.entity.Tag;
 import org.bosf.moondance.entity.User;
+import org.bosf.moondance.entity.Vote;
 import org.bosf.moondance.exception.ApiException;
 import org.bosf.moondance.repository.CourseSessionRepository;
+import org.bosf.moondance.repository.NoteContentRepository;
 import org.bosf.moondance.repository.NoteRepository;
-import org.bosf.moondance.repository.TagRepository;
 import org.bosf.moondance.repository.UserRepository;
 import org.bosf.moondance.repository.VoteRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class NoteService {
@@ -32,29 +44,50 @@ public class NoteService {
     private static final Logger log = LoggerFactory.getLogger(NoteService.class);
 
     private final NoteRepository noteRepository;
+    private final NoteContentRepository noteContentRepository;
     private final CourseSessionRepository courseSessionRepository;
     private final UserRepository userRepository;
-    private final TagRepository tagRepository;
+    private final TagService tagService;
     private final VoteRepository voteRepository;
     private final StorageService storageService;
-    private final TextExtractionService textExtractionService;
+    private final ExtractionJobQueue extractionJobQueue;
+    private final NoteCounterBuffer noteCounterBuffer;
+    private final TrendingScorer trendingScorer;
+    private final TrendingSnapshots trendingSnapshots;
+    private final OrphanedFileCleaner orphanedFileCleaner;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     public NoteService(
         NoteRepository noteRepository, 
+        NoteContentRepository noteContentRepository,
         CourseSessionRepository courseSessionRepository, 
         UserRepository userRepository, 
-        TagRepository tagRepository, 
+        TagService tagService, 
         VoteRepository voteRepository, 
         StorageService storageService, 
-        TextExtractionService textExtractionService
+        ExtractionJobQueue extractionJobQueue,
+        NoteCounterBuffer noteCounterBuffer,
+        TrendingScorer trendingScorer,
+        TrendingSnapshots trendingSnapshots,
+        OrphanedFileCleaner orphanedFileCleaner,
+        ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager
     ) {
         this.noteRepository = noteRepository;
+        this.noteContentRepository = noteContentRepository;
         this.courseSessionRepository = courseSessionRepository;
         this.userRepository = userRepository;
-        this.tagRepository = tagRepository;
+        this.tagService = tagService;
         this.voteRepository = voteRepository;
         this.storageService = storageService;
-        this.textExtractionService = textExtractionService;
+        this.extractionJobQueue = extractionJobQueue;
+        this.noteCounterBuffer = noteCounterBuffer;
+        this.trendingScorer = trendingScorer;
+        this.trendingSnapshots = trendingSnapshots;
+        this.orphanedFileCleaner = orphanedFileCleaner;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     private static final List<String> ALLOWED_MIME_TYPES = List.of(
@@ -70,108 +103,380 @@ public class NoteService {
 
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
 
-    @Transactional
+    private static final String UPLOAD_PREFIX = "uploads/";
+    private static final String NOTES_FOLDER = "notes";
+
+    private static final int MAX_FEED_SIZE = 100;
+
+    /**
+     * Stores the file first and only then opens a short transaction for the
+     * note row, so no pooled connection is held while the upload runs.
+     */
     public NoteDto uploadNote(Long userId, NoteDto.CreateRequest request, MultipartFile file) throws IOException {
         validateFile(file);
 
-        User uploader = userRepository.findActiveById(userId)
-                .orElseThrow(() -> new ApiException.NotFoundException("User", userId));
+        Long schoolId = checkUploadTarget(userId, request.getCourseSessionId());
+
+        String hash = storageService.hashFile(file);
+
+        // Identical content shares the object of the first note that stored it
+        String fileKey = noteRepository.findFirstByFileHashOrderByIdAsc(hash)
+                .map(Note::getFileKey)
+                .orElse(null);
+
+        if (fileKey == null) {
+            // An unreferenced object under this hash may be queued for cleanup; claim it before storeByHash reuses it
+            orphanedFileCleaner.claim(NOTES_FOLDER + "/" + hash);
+
+            fileKey = storageService.storeByHash(file, NOTES_FOLDER, hash).key();
+        }
+
+        return insertNote(userId, schoolId, request, fileKey, hash, file.getSize(), file.getContentType(), file.getOriginalFilename());
+    }
+
+    public NoteDto.UploadTicket createUpload(Long userId, NoteDto.UploadRequest request) {
+        validateUpload(request);
+
+        String uploadKey = UPLOAD_PREFIX + userId + "/" + UUID.randomUUID();
+
+        StorageBackend.PresignedUpload upload = storageService.presignUpload(
+                uploadKey,
+                request.getContentType(),
+                request.getFileSize(),
+                request.getSha256().toLowerCase()
+        );
+
+        return NoteDto.UploadTicket.builder()
+                .uploadKey(uploadKey)
+                .uploadUrl(upload.url())
+                .headers(upload.headers())
+                .expiresAt(LocalDateTime.ofInstant(upload.expiresAt(), ZoneId.systemDefault()))
+                .build();
+    }
+
+    public NoteDto completeUpload(Long userId, NoteDto.CompleteUploadRequest request) {
+        NoteDto.UploadRequest file = request.getFile();
+        String uploadKey = request.getUploadKey();
+        String hash = file.getSha256().toLowerCase();
+
+        validateUpload(file);
+
+        if (!uploadKey.startsWith(UPLOAD_PREFIX + userId + "/")) {
+            throw new ApiException.ForbiddenException("Upload does not belong to this user");
+        }
+
+        StorageBackend.StoredObject stored = storageService.describeFile(uploadKey)
+                .orElseThrow(() -> new ApiException.BadRequestException("Upload not found or already completed"));
+
+        if (stored.size() != file.getFileSize()
+                || !file.getContentType().equals(stored.contentType())
+                || !hash.equals(stored.sha256())) {
+            storageService.deleteFile(uploadKey);
+
+            throw new ApiException.BadRequestException("Uploaded file does not match the declared size, type or checksum");
+        }
+
+        Long schoolId = checkUploadTarget(userId, request.getNote().getCourseSessionId());
+
+        String fileKey = noteRepository.findFirstByFileHashOrderByIdAsc(hash)
+                .map(Note::getFileKey)
+                .orElse(null);
+
+        if (fileKey == null) {
+            fileKey = NOTES_FOLDER + "/" + hash;
+
+            orphanedFileCleaner.claim(fileKey);
+
+            if (!storageService.fileExists(fileKey)) {
+                storageService.copyFile(uploadKey, fileKey);
+            }
+        }
+
+        NoteDto note = insertNote(userId, schoolId, request.getNote(), fileKey, hash, stored.size(), stored.contentType(), file.getFileName());
 
-        CourseSession courseSession = courseSessionRepository.findById(request.getCourseSessionId())
-                .orElseThrow(() -> new ApiException.NotFoundException("CourseSession", request.getCourseSessionId()));
+        // Kept until the note exists so a failed completion can be retried
+        storageService.deleteFile(uploadKey);
 
-        StorageService.UploadResult uploadResult = storageService.uploadFile(file, "notes");
+        return note;
+    }
+
+    // Returns the course session's school, which the note row carries
+    private Long checkUploadTarget(Long userId, Long courseSessionId) {
+        if (userRepository.findActiveById(userId).isEmpty()) {
+            throw new ApiException.NotFoundException("User", userId);
+        }
+
+        return courseSessionRepository.findSchoolIdById(courseSessionId)
+                .orElseThrow(() -> new ApiException.NotFoundException("CourseSession", courseSessionId));
+    }
+
+    private NoteDto insertNote(
+        Long userId,
+        Long schoolId,
+        NoteDto.CreateRequest request,
+        String fileKey,
+        String hash,
+        long fileSize,
+        String mimeType,
+        String originalFileName
+    ) {
+        try {
+            return transactionTemplate.execute(status -> createNote(
+                    userRepository.getReferenceById(userId),
+                    courseSessionRepository.getReferenceById(request.getCourseSessionId()),
+                    schoolId,
+                    request,
+                    fileKey,
+                    hash,
+                    fileSize,
+                    mimeType,
+                    originalFileName
+            ));
+        } catch (RuntimeException e) {
+            // The object may now be referenced by nothing; the cleaner keeps it if another note uses it
+            try {
+                orphanedFileCleaner.markOrphaned(fileKey);
+            } catch (RuntimeException ex) {
+                e.addSuppressed(ex);
+            }
 
-        Set<Tag> tags = getOrCreateTags(request.getTags());
+            throw e;
+        }
+    }
+
+    private NoteDto createNote(
+        User uploader,
+        CourseSession courseSession,
+        Long schoolId,
+        NoteDto.CreateRequest request,
+        String fileKey,
+        String hash,
+        long fileSize,
+        String mimeType,
+        String originalFileName
+    ) {
+        Note extracted = noteRepository
+                .findFirstByFileHashAndProcessingStatusOrderByIdAsc(hash, Note.ProcessingStatus.READY)
+                .orElse(null);
+
+        Set<Tag> tags = tagService.getOrCreateTags(request.getTags());
 
         Note note = Note.builder()
                 .title(request.getTitle())
                 .description(request.getDescription())
                 .type(request.getType())
-                .fileKey(uploadResult.key())
-                .fileHash(uploadResult.hash())
-                .fileSize(uploadResult.size())
-                .mimeType(uploadResult.contentType())
-                .originalFileName(file.getOriginalFilename())
+                .fileKey(fileKey)
+                .fileHash(hash)
+                .fileSize(fileSize)
+                .mimeType(mimeType)
+                .originalFileName(originalFileName)
                 .weekLabel(request.getWeekLabel())
                 .courseSession(courseSession)
+                .schoolId(schoolId)
                 .uploader(uploader)
                 .tags(tags)
-                .processingStatus(Note.ProcessingStatus.PENDING)
+                .processingStatus(extracted != null ? Note.ProcessingStatus.READY : Note.ProcessingStatus.PENDING)
+                .hotScore(trendingScorer.initialScore(Instant.now()))
                 .build();
 
         note = noteRepository.save(note);
 
-        log.info("Note uploaded: {} by user {}", note.getId(), userId);
+        log.info("Note uploaded: {} by user {}", note.getId(), uploader.getId());
+
+        if (extracted != null) {
+            noteContentRepository.copy(extracted.getId(), note.getId());
+        } else {
+            extractionJobQueue.enqueue(note.getId());
+        }
 
-        textExtractionService.extractTextAsync(note.getId());
+        eventPublisher.publishEvent(new NoteUploadedEvent(note.getId(), note.getFileKey(), note.getMimeType()));
 
-        return NoteDto.fromEntity(note);
+        return toDto(note);
     }
 
     @Transactional(readOnly = true)
     public NoteDto getNoteById(Long id) {
-        Note note = noteRepository.findActiveById(id)
+        Note note = noteRepository.findActiveWithDetailsById(id)
                 .orElseThrow(() -> new ApiException.NotFoundException("Note", id));
 
-        return NoteDto.fromEntity(note);
+        return toDto(note);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public NoteDto getNoteByIdWithView(Long id) {
-        Note note = noteRepository.findActiveById(id)
+        Note note = noteRepository.findActiveWithDetailsById(id)
                 .orElseThrow(() -> new ApiException.NotFoundException("Note", id));
 
-        noteRepository.incrementViewCount(id);
+        noteCounterBuffer.increment(id, NoteCounterBuffer.Counter.VIEW);
 
-        return NoteDto.fromEntity(note);
+        return toDto(note);
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> getNotesByCourseSession(Long courseSessionId, Pageable pageable) {
+    public ApiResponse.PageResponse<NoteDto> getNotesByCourseSession(Long courseSessionId, Pageable pageable, Long viewerId) {
         Page<Note> page = noteRepository.findByCourseSessionId(courseSessionId, pageable);
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> searchNotes(Long schoolId, String query, Pageable pageable) {
-        Page<Note> page = noteRepository.searchBySchoolId(schoolId, query, pageable);
+    public ApiResponse.PageResponse<NoteDto> searchNotes(Long schoolId, String query, Pageable pageable, Long viewerId) {
+        // Results are ranked by relevance; a client sort would be appended to the native ORDER BY and override it
+        Page<Note> page = noteRepository.searchBySchoolId(schoolId, query, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> getTrendingNotes(Long schoolId, Pageable pageable) {
+    public ApiResponse.PageResponse<NoteDto> getTrendingNotes(Long schoolId, Pageable pageable, Long viewerId) {
         Page<Note> page = noteRepository.findTrendingBySchoolId(schoolId, pageable);
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> getRecentNotes(Long schoolId, Pageable pageable) {
+    public ApiResponse.PageResponse<NoteDto> getRecentNotes(Long schoolId, Pageable pageable, Long viewerId) {
         Page<Note> page = noteRepository.findRecentBySchoolId(schoolId, pageable);
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> getNotesByType(Long schoolId, Note.NoteType type, Pageable pageable) {
+    public ApiResponse.PageResponse<NoteDto> getNotesByType(Long schoolId, Note.NoteType type, Pageable pageable, Long viewerId) {
         Page<Note> page = noteRepository.findByTypeAndSchoolId(type, schoolId, pageable);
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public ApiResponse.PageResponse<NoteDto> getUserNotes(Long userId, Pageable pageable) {
+    public ApiResponse.PageResponse<NoteDto> getUserNotes(Long userId, Pageable pageable, Long viewerId) {
         Page<Note> page = noteRepository.findByUploaderId(userId, pageable);
 
-        return ApiResponse.PageResponse.from(page, NoteDto::fromEntity);
+        ApiResponse.PageResponse<NoteDto> response = ApiResponse.PageResponse.from(page, this::toDto);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    public ApiResponse.SliceResponse<NoteDto> getCourseSessionFeed(Long courseSessionId, String cursor, int size, Long viewerId) {
+        FeedCursor.Recent after = FeedCursor.parseRecent(cursor);
+        Slice<Note> slice = noteRepository.findByCourseSessionIdBefore(courseSessionId, after.createdAt(), after.id(), feedPage(size));
+
+        ApiResponse.SliceResponse<NoteDto> response = ApiResponse.SliceResponse.from(slice, this::toDto, FeedCursor::recent);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
+    }
+
+    /**
+     * Trending notes by cursor. The first page freezes the ranking in a
+     * {@link TrendingSnapshots} snapshot so that notes gaining score while
+     * the client pages are not skipped; once the snapshot is used up or
+     * gone, paging goes on by keyset from the last score it handed out.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse.SliceResponse<NoteDto> getTrendingFeed(Long schoolId, String cursor, int size, Long viewerId) {
+        FeedCursor.Trending after = FeedCursor.parseTrending(cursor);
+
+        Optional<TrendingSnapshots.Snapshot> snapshot = cursor == null || cursor.isBlank()
+                ? trendingSnapshots.current(schoolId)
+                : Optional.ofNullable(after.snapshotId()).flatMap(id -> trendingSnapshots.get(schoolId, id));
+
+        ApiResponse.SliceResponse<NoteDto> response;
+
+        if (snapshot.isPresent() && after.offset() < snapshot.get().entries().size()) {
+            response = trendingSnapshotPage(snapshot.get(), after.offset(), feedPage(size).getPageSize());
+        } else {
+            Slice<Note> slice = noteRepository.findTrendingBySchoolIdBefore(schoolId, after.hotScore(), after.id(), feedPage(size));
+
+            response = ApiResponse.SliceResponse.from(slice, this::toDto, FeedCursor::trending);
+        }
+
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
+    }
+
+    private ApiResponse.SliceResponse<NoteDto> trendingSnapshotPage(TrendingSnapshots.Snapshot snapshot, int offset, int size) {
+        List<TrendingSnapshots.Entry> entries = snapshot.entries();
+        List<TrendingSnapshots.Entry> page = entries.subList(offset, Math.min(offset + size, entries.size()));
+
+        Map<Long, Note> notes = noteRepository.findActiveWithDetailsByIdIn(page.stream().map(TrendingSnapshots.Entry::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Note::getId, note -> note));
+
+        // Notes deleted since the snapshot are dropped, so a page can come up short
+        List<NoteDto> content = page.stream()
+                .map(entry -> notes.get(entry.id()))
+                .filter(Objects::nonNull)
+                .map(this::toDto)
+                .toList();
+
+        int next = offset + page.size();
+        boolean exhausted = next >= entries.size();
+        boolean hasNext = !exhausted || !snapshot.complete();
+        TrendingSnapshots.Entry last = page.getLast();
+
+        // Past the end of the snapshot the cursor drops it and carries on by keyset from its last score
+        String nextCursor = hasNext
+                ? FeedCursor.trending(exhausted ? null : snapshot.id(), next, last.hotScore(), last.id())
+                : null;
+
+        return new ApiResponse.SliceResponse<>(content, size, hasNext, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public ApiResponse.SliceResponse<NoteDto> getRecentFeed(Long schoolId, String cursor, int size, Long viewerId) {
+        FeedCursor.Recent after = FeedCursor.parseRecent(cursor);
+        Slice<Note> slice = noteRepository.findRecentBySchoolIdBefore(schoolId, after.createdAt(), after.id(), feedPage(size));
+
+        ApiResponse.SliceResponse<NoteDto> response = ApiResponse.SliceResponse.from(slice, this::toDto, FeedCursor::recent);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    public ApiResponse.SliceResponse<NoteDto> getTypeFeed(Long schoolId, Note.NoteType type, String cursor, int size, Long viewerId) {
+        FeedCursor.Recent after = FeedCursor.parseRecent(cursor);
+        Slice<Note> slice = noteRepository.findByTypeAndSchoolIdBefore(type, schoolId, after.createdAt(), after.id(), feedPage(size));
+
+        ApiResponse.SliceResponse<NoteDto> response = ApiResponse.SliceResponse.from(slice, this::toDto, FeedCursor::recent);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    public ApiResponse.SliceResponse<NoteDto> getUserFeed(Long userId, String cursor, int size, Long viewerId) {
+        FeedCursor.Recent after = FeedCursor.parseRecent(cursor);
+        Slice<Note> slice = noteRepository.findByUploaderIdBefore(userId, after.createdAt(), after.id(), feedPage(size));
+
+        ApiResponse.SliceResponse<NoteDto> response = ApiResponse.SliceResponse.from(slice, this::toDto, FeedCursor::recent);
+        attachMyVotes(response.getContent(), viewerId);
+
+        return response;
     }
 
     @Transactional
     public NoteDto updateNote(Long noteId, Long userId, NoteDto.UpdateRequest request) {
-        Note note = noteRepository.findActiveById(noteId)
+        Note note = noteRepository.findActiveWithDetailsById(noteId)
                 .orElseThrow(() -> new ApiException.NotFoundException("Note", noteId));
 
         if (!note.getUploader().getId().equals(userId)) {
@@ -195,12 +500,12 @@ public class NoteService {
         }
 
         if (request.getTags() != null) {
-            note.setTags(getOrCreateTags(request.getTags()));
+            note.setTags(tagService.getOrCreateTags(request.getTags()));
         }
 
         note = noteRepository.save(note);
 
-        return NoteDto.fromEntity(note);
+        return toDto(note);
     }
 
     @Transactional
@@ -219,12 +524,12 @@ public class NoteService {
         log.info("Note deleted: {} by user {}", noteId, userId);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public String getDownloadUrl(Long noteId) {
         Note note = noteRepository.findActiveById(noteId)
                 .orElseThrow(() -> new ApiException.NotFoundException("Note", noteId));
 
-        noteRepository.incrementDownloadCount(noteId);
+        noteCounterBuffer.increment(noteId, NoteCounterBuffer.Counter.DOWNLOAD);
 
         return storageService.generateDownloadUrl(note.getFileKey(), note.getOriginalFileName());
     }
@@ -237,42 +542,61 @@ public class NoteService {
         return storageService.generatePresignedUrl(note.getFileKey());
     }
 
-    private void validateFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new ApiException.BadRequestException("File is required");
-        }
+    // The queries order by their own keys, so the page carries only the limit
+    private static Pageable feedPage(int size) {
+        return PageRequest.of(0, Math.clamp(size, 1, MAX_FEED_SIZE));
+    }
 
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new ApiException.BadRequestException("File size exceeds maximum allowed size of 50MB");
+    // One lookup for the whole page instead of a my-vote request per card; anonymous viewers get no vote
+    private void attachMyVotes(List<NoteDto> notes, Long viewerId) {
+        if (viewerId == null || notes.isEmpty()) {
+            return;
         }
 
-        String contentType = file.getContentType();
+        Map<Long, Integer> votes = voteRepository.findByNoteIdInAndUserId(notes.stream().map(NoteDto::getId).toList(), viewerId)
+                .stream()
+                .collect(Collectors.toMap(vote -> vote.getNote().getId(), Vote::getValue));
 
-        if (contentType == null || !ALLOWED_MIME_TYPES.contains(contentType)) {
-            throw new ApiException.BadRequestException("File type not allowed. Allowed types: PDF, images, Word, PowerPoint");
-        }
+        notes.forEach(dto -> dto.setMyVote(votes.get(dto.getId())));
     }
 
-    private Set<Tag> getOrCreateTags(Set<String> tagNames) {
-        if (tagNames == null || tagNames.isEmpty()) {
-            return new HashSet<>();
+    private NoteDto toDto(Note note) {
+        NoteDto dto = NoteDto.fromEntity(note);
+
+        if (note.getThumbnailKey() != null) {
+            dto.setThumbnailUrl(storageService.generatePresignedUrl(note.getThumbnailKey()));
         }
 
-        Set<Tag> existingTags = tagRepository.findByNameIn(tagNames);
-        Set<String> existingNames = new HashSet<>();
+        if (note.getPreviewKey() != null) {
+            dto.setPreviewUrl(storageService.generatePresignedUrl(note.getPreviewKey()));
+        }
 
-        existingTags.forEach(t -> existingNames.add(t.getName()));
+        return dto;
+    }
 
-        Set<Tag> result = new HashSet<>(existingTags);
+    private void validateUpload(NoteDto.UploadRequest request) {
+        if (request.getFileSize() > MAX_FILE_SIZE) {
+            throw new ApiException.BadRequestException("File size exceeds maximum allowed size of 50MB");
+        }
 
-        for (String name : tagNames) {
-            if (!existingNames.contains(name)) {
-                Tag newTag = Tag.builder().name(name).build();
+        if (!ALLOWED_MIME_TYPES.contains(request.getContentType())) {
+            throw new ApiException.BadRequestException("File type not allowed. Allowed types: PDF, images, Word, PowerPoint");
+        }
+    }
 
-                result.add(tagRepository.save(newTag));
-            }
+    private void validateFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ApiException.BadRequestException("File is required");
         }
 
-        return result;
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new ApiException.BadRequestException("File size exceeds maximum allowed size of 50MB");
+        }
+
+        String contentType = file.getContentType();
+
+        if (contentType == null || !ALLOWED_MIME_TYPES.contains(contentType)) {
+            throw new ApiException.BadRequestException("File type not allowed. Allowed types: PDF, images, Word, PowerPoint");
+        }
     }
 }
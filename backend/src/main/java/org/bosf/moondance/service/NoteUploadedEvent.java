@@ -0,0 +1,3 @@
+package org.bosf.moondance.service;
+
+public record NoteUploadedEvent(Long noteId, String fileKey, String mimeType) {}
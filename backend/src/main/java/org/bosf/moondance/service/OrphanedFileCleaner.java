@@ -0,0 +1,113 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes stored objects recorded in orphaned_files once no note references
+ * them any more, along with the thumbnail and preview rendered from them.
+ * Stored objects are shared by every note with the same content hash, so
+ * the notes table itself is the reference count.
+ */
+@Component
+public class OrphanedFileCleaner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrphanedFileCleaner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NoteRepository noteRepository;
+    private final StorageService storageService;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.storage.orphan-grace-minutes}")
+    private long graceMinutes;
+
+    public OrphanedFileCleaner(
+        JdbcTemplate jdbcTemplate,
+        NoteRepository noteRepository,
+        StorageService storageService,
+        ThumbnailService thumbnailService,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.noteRepository = noteRepository;
+        this.storageService = storageService;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void markOrphaned(String fileKey) {
+        jdbcTemplate.update("INSERT INTO orphaned_files (file_key) VALUES (?) ON CONFLICT DO NOTHING", fileKey);
+    }
+
+    /**
+     * Takes a key back from the cleaner before an upload reuses an object
+     * that no note references yet. Blocks while the cleaner is deciding on
+     * the key, so a check for the object made afterwards sees the outcome.
+     */
+    public void claim(String fileKey) {
+        jdbcTemplate.update("DELETE FROM orphaned_files WHERE file_key = ?", fileKey);
+    }
+
+    @Scheduled(cron = "${app.storage.orphan-cleanup-cron}")
+    public void cleanup() {
+        // The grace period keeps an upload that is about to be referenced from being deleted under it
+        List<String> keys = jdbcTemplate.queryForList(
+                "SELECT file_key FROM orphaned_files WHERE created_at < ? ORDER BY created_at",
+                String.class,
+                LocalDateTime.now().minusMinutes(graceMinutes)
+        );
+
+        int deleted = 0;
+
+        for (String key : keys) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteIfUnreferenced(key)))) {
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to clean up orphaned file {}", key, e);
+            }
+        }
+
+        if (!keys.isEmpty()) {
+            log.info("Orphaned file cleanup: checked {}, deleted {}", keys.size(), deleted);
+        }
+    }
+
+    // Holds the row lock across the check and the delete; a key claimed in the meantime is left alone
+    private boolean deleteIfUnreferenced(String key) {
+        List<String> locked = jdbcTemplate.queryForList(
+                "SELECT file_key FROM orphaned_files WHERE file_key = ? FOR UPDATE SKIP LOCKED",
+                String.class,
+                key
+        );
+
+        if (locked.isEmpty()) {
+            return false;
+        }
+
+        boolean unreferenced = !noteRepository.existsByFileKey(key);
+
+        if (unreferenced) {
+            // Variants first, so a failure leaves the original and its orphaned_files row for the next run
+            thumbnailService.variantKeys(key).forEach(storageService::deleteFile);
+            storageService.deleteFile(key);
+        }
+
+        jdbcTemplate.update("DELETE FROM orphaned_files WHERE file_key = ?", key);
+
+        return unreferenced;
+    }
+}
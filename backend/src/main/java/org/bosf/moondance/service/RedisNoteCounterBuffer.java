@@ -0,0 +1,132 @@
+package org.bosf.moondance.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared counter buffer for multi-instance deployments. Increments go to a
+ * Redis hash per counter with HINCRBY, and whichever instance flushes first
+ * takes the whole hash atomically. While Redis is unreachable increments
+ * are dropped and counted rather than failing the view or download that
+ * caused them.
+ */
+@Component
+@ConditionalOnProperty(name = "app.counters.store", havingValue = "redis")
+public class RedisNoteCounterBuffer implements NoteCounterBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisNoteCounterBuffer.class);
+
+    private static final String KEY_PREFIX = "moondance:note-counters:";
+
+    // An outage fails every increment; one warning per interval is enough to see it in the logs
+    private static final long WARN_INTERVAL_NANOS = Duration.ofMinutes(1).toNanos();
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE_ALL = new DefaultRedisScript<>(
+            "local entries = redis.call('HGETALL', KEYS[1]) redis.call('DEL', KEYS[1]) return entries",
+            List.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final Map<Counter, String> keys = new EnumMap<>(Counter.class);
+    private final Map<Counter, io.micrometer.core.instrument.Counter> dropped = new EnumMap<>(Counter.class);
+
+    private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NANOS);
+    private final AtomicLong droppedSinceWarning = new AtomicLong();
+
+    public RedisNoteCounterBuffer(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+
+        for (Counter counter : Counter.values()) {
+            keys.put(counter, KEY_PREFIX + counter.name().toLowerCase());
+            dropped.put(counter, io.micrometer.core.instrument.Counter.builder("moondance.counters.dropped")
+                    .description("Note counter increments lost because Redis could not be reached")
+                    .tag("counter", counter.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public void increment(Long noteId, Counter counter) {
+        try {
+            redisTemplate.opsForHash().increment(keys.get(counter), noteId.toString(), 1);
+        } catch (RuntimeException e) {
+            dropped.get(counter).increment();
+            droppedSinceWarning.incrementAndGet();
+
+            long now = System.nanoTime();
+            long last = lastWarning.get();
+
+            if (now - last >= WARN_INTERVAL_NANOS && lastWarning.compareAndSet(last, now)) {
+                log.warn("Dropping note counter increments, Redis unavailable ({} since last warning): {}",
+                        droppedSinceWarning.getAndSet(0), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, Delta> drain() {
+        Map<Long, Delta> deltas = new HashMap<>();
+
+        keys.forEach((counter, key) -> {
+            List<?> entries = redisTemplate.execute(TAKE_ALL, List.of(key));
+
+            if (entries == null) {
+                return;
+            }
+
+            for (int i = 0; i + 1 < entries.size(); i += 2) {
+                Long noteId = Long.valueOf(entries.get(i).toString());
+                long amount = Long.parseLong(entries.get(i + 1).toString());
+
+                deltas.merge(noteId, Delta.of(counter, amount), Delta::plus);
+            }
+        });
+
+        return deltas;
+    }
+
+    @Override
+    public void restore(Map<Long, Delta> deltas) {
+        deltas.forEach((noteId, delta) -> {
+            if (delta.views() > 0) {
+                redisTemplate.opsForHash().increment(keys.get(Counter.VIEW), noteId.toString(), delta.views());
+            }
+
+            if (delta.downloads() > 0) {
+                redisTemplate.opsForHash().increment(keys.get(Counter.DOWNLOAD), noteId.toString(), delta.downloads());
+            }
+
+            if (delta.upvotes() > 0) {
+                redisTemplate.opsForHash().increment(keys.get(Counter.UPVOTE), noteId.toString(), delta.upvotes());
+            }
+        });
+    }
+
+    @Override
+    public long pendingIncrements() {
+        long pending = 0;
+
+        for (String key : keys.values()) {
+            for (Object value : redisTemplate.opsForHash().values(key)) {
+                pending += Long.parseLong(value.toString());
+            }
+        }
+
+        return pending;
+    }
+}
@@ -47,6 +47,7 @@ public class ReportService {
 
         Report report = Report.builder()
                 .note(note)
+                .schoolId(note.getSchoolId())
                 .reporter(reporter)
                 .reason(request.getReason())
                 .description(request.getDescription())
@@ -0,0 +1,44 @@
+package org.bosf.moondance.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Object store behind {@link StorageService}, selected with
+ * {@code app.storage.type}: S3 in production, the local filesystem for
+ * small deployments, or memory for CI.
+ */
+public interface StorageBackend {
+
+    record PresignedUpload(String url, Map<String, String> headers, Instant expiresAt) {}
+
+    record StoredObject(long size, String contentType, String sha256) {}
+
+    void put(String key, InputStream in, long size, String contentType) throws IOException;
+
+    InputStream get(String key);
+
+    Optional<StoredObject> describe(String key);
+
+    boolean exists(String key);
+
+    void copy(String sourceKey, String targetKey);
+
+    void delete(String key);
+
+    /**
+     * URL for a single PUT of exactly this size, type and SHA-256; the
+     * headers must be sent with it.
+     */
+    PresignedUpload presignPut(String key, String contentType, long size, String sha256, Duration expiration);
+
+    /**
+     * URL for a GET of the object, served with the given Content-Disposition
+     * or inline when it is null.
+     */
+    String presignGet(String key, String contentDisposition, Duration expiration);
+}
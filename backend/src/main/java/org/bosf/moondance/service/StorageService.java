@@ -1,143 +1,153 @@
 package org.bosf.moondance.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.HexFormat;
-import java.util.UUID;
+import java.util.Optional;
 
 @Service
 public class StorageService {
 
     private static final Logger log = LoggerFactory.getLogger(StorageService.class);
 
-    private final S3Client s3Client;
-    private final S3Presigner s3Presigner;
+    private final StorageBackend backend;
+    private final Duration urlExpiration;
+    private final Cache<PresignedGet, String> presignedUrls;
+
+    public StorageService(
+        StorageBackend backend,
+        MeterRegistry meterRegistry,
+        @Value("${app.storage.url-expiration-minutes}") int urlExpirationMinutes,
+        @Value("${app.storage.url-cache-size}") long urlCacheSize
+    ) {
+        this.backend = backend;
+        this.urlExpiration = Duration.ofMinutes(urlExpirationMinutes);
+
+        // Reused for half their lifetime, so a handed-out URL always has at least that long left
+        this.presignedUrls = Caffeine.newBuilder()
+                .maximumSize(urlCacheSize)
+                .expireAfterWrite(urlExpiration.dividedBy(2))
+                .recordStats()
+                .build();
 
-    @Value("${app.s3.bucket}")
-    private String bucket;
+        CaffeineCacheMetrics.monitor(meterRegistry, presignedUrls, "presignedUrls");
+    }
 
-    @Value("${app.s3.presigned-url-expiration-minutes}")
-    private int presignedUrlExpirationMinutes;
+    // A null disposition means the object is served inline
+    private record PresignedGet(String key, String disposition) {}
 
-    public StorageService(S3Client s3Client, S3Presigner s3Presigner) {
-        this.s3Client = s3Client;
-        this.s3Presigner = s3Presigner;
+    public record UploadResult(String key, String hash, long size, String contentType) {}
+
+    /**
+     * Presigns a single PUT of exactly this size, type and SHA-256. The
+     * backend rejects the upload if the body does not match the signed checksum.
+     */
+    public StorageBackend.PresignedUpload presignUpload(String key, String contentType, long size, String sha256) {
+        return backend.presignPut(key, contentType, size, sha256, urlExpiration);
     }
 
-    public record UploadResult(String key, String hash, long size, String contentType) {}
+    public Optional<StorageBackend.StoredObject> describeFile(String key) {
+        return backend.describe(key);
+    }
+
+    public void copyFile(String sourceKey, String targetKey) {
+        backend.copy(sourceKey, targetKey);
+    }
 
-    public UploadResult uploadFile(MultipartFile file, String folder) throws IOException {
-        String originalFilename = file.getOriginalFilename();
+    public String hashFile(MultipartFile file) throws IOException {
+        MessageDigest digest = newSha256();
 
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf('.'))
-                : "";
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
 
-        String key = folder + "/" + UUID.randomUUID() + extension;
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Stores the file under a key derived from its SHA-256, skipping the
+     * upload when an object with the same content is already there.
+     */
+    public UploadResult storeByHash(MultipartFile file, String folder, String hash) throws IOException {
+        String key = folder + "/" + hash;
         String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+        long size = file.getSize();
 
-        byte[] bytes = file.getBytes();
-        String hash = calculateSHA256(bytes);
+        if (fileExists(key)) {
+            log.info("File already stored, skipping upload: {}", key);
 
-        PutObjectRequest putRequest = PutObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .contentType(contentType)
-                .contentDisposition("attachment; filename=\"" + originalFilename + "\"")
-                .build();
+            return new UploadResult(key, hash, size, contentType);
+        }
 
-        s3Client.putObject(putRequest, RequestBody.fromBytes(bytes));
+        // The object may be shared by several notes, so the filename is set per download URL instead
+        try (InputStream in = file.getInputStream()) {
+            backend.put(key, in, size, contentType);
+        }
 
-        log.info("File uploaded to S3: {}", key);
+        log.info("File stored: {}", key);
 
-        return new UploadResult(key, hash, bytes.length, contentType);
+        return new UploadResult(key, hash, size, contentType);
     }
 
-    public InputStream downloadFile(String key) {
-        GetObjectRequest getRequest = GetObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build();
+    public void uploadBytes(String key, byte[] bytes, String contentType) {
+        try {
+            backend.put(key, new ByteArrayInputStream(bytes), bytes.length, contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store " + key, e);
+        }
+    }
 
-        return s3Client.getObject(getRequest);
+    public InputStream downloadFile(String key) {
+        return backend.get(key);
     }
 
+    /**
+     * Presigned GET for the object. Repeat calls return the same URL while
+     * it is cached, which also lets browsers and CDNs cache the object.
+     */
     public String generatePresignedUrl(String key) {
-        GetObjectRequest getRequest = GetObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build();
-
-        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofMinutes(presignedUrlExpirationMinutes))
-                .getObjectRequest(getRequest)
-                .build();
-
-        return s3Presigner.presignGetObject(presignRequest).url().toString();
+        return presignedUrls.get(new PresignedGet(key, null), this::presignGet);
     }
 
     public String generateDownloadUrl(String key, String filename) {
-        GetObjectRequest getRequest = GetObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .responseContentDisposition("attachment; filename=\"" + filename + "\"")
-                .build();
-
-        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofMinutes(presignedUrlExpirationMinutes))
-                .getObjectRequest(getRequest)
-                .build();
+        return presignedUrls.get(new PresignedGet(key, "attachment; filename=\"" + filename + "\""), this::presignGet);
+    }
 
-        return s3Presigner.presignGetObject(presignRequest).url().toString();
+    private String presignGet(PresignedGet get) {
+        return backend.presignGet(get.key(), get.disposition(), urlExpiration);
     }
 
     public void deleteFile(String key) {
-        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build();
-
-        s3Client.deleteObject(deleteRequest);
+        backend.delete(key);
 
-        log.info("File deleted from S3: {}", key);
+        log.info("File deleted: {}", key);
     }
 
     public boolean fileExists(String key) {
-        try {
-            HeadObjectRequest headRequest = HeadObjectRequest.builder()
-                    .bucket(bucket)
-                    .key(key)
-                    .build();
-
-            s3Client.headObject(headRequest);
-
-            return true;
-        } catch (NoSuchKeyException e) {
-            return false;
-        }
+        return backend.exists(key);
     }
 
-    private String calculateSHA256(byte[] bytes) {
+    static MessageDigest newSha256() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(bytes);
-            
-            return HexFormat.of().formatHex(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
@@ -0,0 +1,141 @@
+package org.bosf.moondance.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bosf.moondance.config.CacheConfig;
+import org.bosf.moondance.dto.TagDto;
+import org.bosf.moondance.entity.Tag;
+import org.bosf.moondance.exception.ApiException;
+import org.bosf.moondance.repository.TagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Service
+public class TagService {
+
+    private static final int POPULAR_LIMIT = 20;
+
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final TagRepository tagRepository;
+
+    // Tags are never deleted or renamed by the app, so a name once seen in the table stays there
+    private final Cache<String, Boolean> knownNames;
+
+    public TagService(TagRepository tagRepository, @Value("${app.tags.known-names-cache-size}") long knownNamesCacheSize) {
+        this.tagRepository = tagRepository;
+        this.knownNames = Caffeine.newBuilder().maximumSize(knownNamesCacheSize).build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<TagDto> getAllTags() {
+        return tagRepository.findAll().stream().map(TagDto::fromEntity).toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<TagDto> searchTags(String query) {
+        return tagRepository.searchByName(query).stream().map(TagDto::fromEntity).toList();
+    }
+
+    // Counts change with every tagged upload, so this cache only lives for the short TTL set in CacheConfig
+    @Cacheable(CacheConfig.POPULAR_TAGS)
+    @Transactional(readOnly = true)
+    public List<TagDto> getPopularTags(Long schoolId) {
+        return tagRepository.findPopularBySchoolId(schoolId, POPULAR_LIMIT).stream().map(TagDto::fromEntity).toList();
+    }
+
+    /**
+     * Resolves tag names to tags with one select, creating the missing ones
+     * first with a single insert that skips names another upload created in
+     * the meantime. The insert is left out when every name is already known
+     * to exist. Names are trimmed, lower-cased and have their inner
+     * whitespace collapsed first. The tags come back in id order, the order
+     * their note_tags rows are inserted in, so two uploads sharing tags lock
+     * the per-school count rows in the same order instead of deadlocking.
+     */
+    @Transactional
+    public Set<Tag> getOrCreateTags(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        Set<String> normalized = new LinkedHashSet<>();
+
+        for (String name : names) {
+            String tag = normalize(name);
+
+            if (!tag.isEmpty()) {
+                normalized.add(tag);
+            }
+        }
+
+        if (normalized.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        Set<String> missing = new HashSet<>();
+
+        for (String name : normalized) {
+            if (knownNames.getIfPresent(name) == null) {
+                missing.add(name);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            tagRepository.insertMissing(missing.toArray(String[]::new));
+            rememberAfterCommit(missing);
+        }
+
+        return inIdOrder(tagRepository.findByNameIn(normalized));
+    }
+
+    static Set<Tag> inIdOrder(Collection<Tag> tags) {
+        return tags.stream()
+                .sorted(Comparator.comparing(Tag::getId))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // A tag inserted here only exists for other transactions once this one commits
+    private void rememberAfterCommit(Set<String> names) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    names.forEach(name -> knownNames.put(name, Boolean.TRUE));
+                }
+            });
+        } else {
+            names.forEach(name -> knownNames.put(name, Boolean.TRUE));
+        }
+    }
+
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+
+        String tag = WHITESPACE.matcher(name.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+
+        if (tag.length() > MAX_NAME_LENGTH) {
+            throw new ApiException.BadRequestException("Tag names can be at most " + MAX_NAME_LENGTH + " characters");
+        }
+
+        return tag;
+    }
+}
@@ -1,19 +1,32 @@
 package org.bosf.moondance.service;
 
-import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
 import org.bosf.moondance.entity.Note;
+import org.bosf.moondance.repository.NoteContentRepository;
 import org.bosf.moondance.repository.NoteRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.xml.sax.SAXException;
 
-import java.io.InputStream;
-import java.util.List;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TextExtractionService {
@@ -21,38 +34,48 @@ public class TextExtractionService {
     private static final Logger log = LoggerFactory.getLogger(TextExtractionService.class);
 
     private final NoteRepository noteRepository;
+    private final NoteContentRepository noteContentRepository;
     private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor parseExecutor;
     
-    private final Tika tika = new Tika();
-
-    public TextExtractionService(NoteRepository noteRepository, StorageService storageService) {
+    private final Parser parser = new AutoDetectParser();
+
+    private final int maxChars;
+    private final Duration timeBudget;
+    private final Duration hardTimeout;
+    private final long allocationBudgetBytes;
+    private final int maxPages;
+
+    public TextExtractionService(
+        NoteRepository noteRepository,
+        NoteContentRepository noteContentRepository,
+        StorageService storageService,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("tikaParseExecutor") ThreadPoolTaskExecutor parseExecutor,
+        @Value("${app.extraction.max-chars}") int maxChars,
+        @Value("${app.extraction.time-budget-seconds}") long timeBudgetSeconds,
+        @Value("${app.extraction.hard-timeout-seconds}") long hardTimeoutSeconds,
+        @Value("${app.extraction.allocation-budget-mb}") long allocationBudgetMb,
+        @Value("${app.extraction.max-pages}") int maxPages
+    ) {
         this.noteRepository = noteRepository;
+        this.noteContentRepository = noteContentRepository;
         this.storageService = storageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.parseExecutor = parseExecutor;
+        this.maxChars = maxChars;
+        this.timeBudget = Duration.ofSeconds(timeBudgetSeconds);
+        this.hardTimeout = Duration.ofSeconds(hardTimeoutSeconds);
+        this.allocationBudgetBytes = allocationBudgetMb * 1024 * 1024;
+        this.maxPages = maxPages;
     }
 
-    @EventListener(ApplicationReadyEvent.class)
-    public void onApplicationReady() {
-        List<Note> pendingNotes = noteRepository.findByProcessingStatus(Note.ProcessingStatus.PROCESSING);
-
-        for (Note note : pendingNotes) {
-            log.info("Re-queuing note {} for text extraction", note.getId());
-
-            note.setProcessingStatus(Note.ProcessingStatus.PENDING);
-            noteRepository.save(note);
-
-            extractTextAsync(note.getId());
-        }
-
-        List<Note> newNotes = noteRepository.findByProcessingStatus(Note.ProcessingStatus.PENDING);
-
-        for (Note note : newNotes) {
-            extractTextAsync(note.getId());
-        }
-    }
-
-    @Async("textExtractionExecutor")
-    @Transactional
-    public void extractTextAsync(Long noteId) {
+    /**
+     * Extracts and stores the text of a note. The download and parse run
+     * outside any transaction; failures propagate so the job can be retried.
+     */
+    public void extract(Long noteId) throws IOException, TikaException {
         log.info("Starting text extraction for note: {}", noteId);
 
         Note note = noteRepository.findById(noteId).orElse(null);
@@ -63,46 +86,85 @@ public class TextExtractionService {
             return;
         }
 
-        try {
-            note.setProcessingStatus(Note.ProcessingStatus.PROCESSING);
-            noteRepository.save(note);
-
-            String content = extractText(note.getFileKey(), note.getMimeType());
+        updateStatus(noteId, Note.ProcessingStatus.PROCESSING);
 
-            if (content != null && content.length() > 100000) {
-                content = content.substring(0, 100000);
-            }
+        String extracted = extractText(note.getFileKey(), note.getMimeType());
 
-            note.setExtractedContent(content);
-            note.setProcessingStatus(Note.ProcessingStatus.READY);
+        transactionTemplate.executeWithoutResult(status -> {
+            noteContentRepository.upsert(noteId, extracted);
+            noteRepository.updateProcessingStatus(noteId, Note.ProcessingStatus.READY);
+        });
 
-            noteRepository.save(note);
-
-            log.info("Text extraction completed for note: {}", noteId);
-
-        } catch (Exception e) {
-            log.error("Text extraction failed for note: {}", noteId, e);
-
-            note.setProcessingStatus(Note.ProcessingStatus.FAILED);
+        log.info("Text extraction completed for note: {}", noteId);
+    }
 
-            noteRepository.save(note);
-        }
+    public void updateStatus(Long noteId, Note.ProcessingStatus processingStatus) {
+        transactionTemplate.executeWithoutResult(status ->
+                noteRepository.updateProcessingStatus(noteId, processingStatus));
     }
 
-    private String extractText(String fileKey, String mimeType) {
+    /**
+     * Runs the parse on its own thread and stops waiting after the hard
+     * timeout. The handler's budgets only fire when the parser emits
+     * content, so this is what catches a parser stuck inside one document
+     * structure; the job then fails and is retried with backoff.
+     */
+    private String extractText(String fileKey, String mimeType) throws IOException, TikaException {
         if (!isExtractable(mimeType)) {
             return null;
         }
 
-        try (InputStream inputStream = storageService.downloadFile(fileKey)) {
-            String content = tika.parseToString(inputStream);
+        Future<String> parse = parseExecutor.submit(() -> parse(fileKey, mimeType));
 
-            return content.trim();
-        } catch (TikaException | java.io.IOException e) {
-            log.error("Failed to extract text from file: {}", fileKey, e);
+        try {
+            return parse.get(hardTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The parser may ignore the interrupt, but the handler's deadline has passed, so the next content it emits ends it
+            parse.cancel(true);
+
+            throw new TikaException("Extraction of " + fileKey + " did not finish within " + hardTimeout.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            parse.cancel(true);
+            Thread.currentThread().interrupt();
+
+            throw new TikaException("Interrupted while extracting " + fileKey, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            } else if (e.getCause() instanceof TikaException tikaException) {
+                throw tikaException;
+            } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw new TikaException("Failed to parse " + fileKey, e.getCause());
+            }
+        }
+    }
 
-            return null;
+    // Runs on the parse thread, which is also the thread the allocation budget is measured on
+    private String parse(String fileKey, String mimeType) throws IOException, TikaException {
+        BodyContentHandler body = new BodyContentHandler(maxChars);
+        BudgetedContentHandler handler = new BudgetedContentHandler(body, timeBudget, allocationBudgetBytes, maxPages);
+
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_TYPE, mimeType);
+
+        try (TikaInputStream inputStream = TikaInputStream.get(storageService.downloadFile(fileKey))) {
+            parser.parse(inputStream, handler, metadata, new ParseContext());
+        } catch (SAXException | TikaException e) {
+            // Hitting a limit ends the parse early; the text gathered so far is kept
+            if (WriteLimitReachedException.isWriteLimitReached(e)) {
+                log.info("Extraction of {} stopped at the {} character limit", fileKey, maxChars);
+            } else if (BudgetExceededException.isCauseOf(e)) {
+                log.warn("Extraction of {} stopped early: {}", fileKey, BudgetExceededException.find(e).getMessage());
+            } else if (e instanceof TikaException tikaException) {
+                throw tikaException;
+            } else {
+                throw new TikaException("Failed to parse " + fileKey, e);
+            }
         }
+
+        return body.toString().trim();
     }
 
     private boolean isExtractable(String mimeType) {
@@ -0,0 +1,326 @@
+package org.bosf.moondance.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.sl.usermodel.SlideShow;
+import org.apache.poi.sl.usermodel.SlideShowFactory;
+import org.bosf.moondance.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Renders a first-page preview and a small thumbnail for uploaded notes and
+ * stores them next to the original as {@code <fileKey>.preview-<w>.jpg} and
+ * {@code <fileKey>.thumb-<w>.jpg}. Runs on the bounded thumbnail executor
+ * once the upload has committed; {@link ThumbnailSweeper} retries notes whose
+ * render was dropped or failed.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private static final String JPEG = "image/jpeg";
+
+    static final String PDF = "application/pdf";
+    static final String PPT = "application/vnd.ms-powerpoint";
+    static final String PPTX = "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+    static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    // Besides these, every image/* type is rendered
+    static final List<String> DOCUMENT_TYPES = List.of(PDF, PPT, PPTX, DOCX);
+
+    private final NoteRepository noteRepository;
+    private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int thumbnailWidth;
+    private final int previewWidth;
+    private final long maxSourcePixels;
+    private final long pdfMemoryBytes;
+
+    public ThumbnailService(
+        NoteRepository noteRepository,
+        StorageService storageService,
+        PlatformTransactionManager transactionManager,
+        @Value("${app.thumbnails.thumbnail-width}") int thumbnailWidth,
+        @Value("${app.thumbnails.preview-width}") int previewWidth,
+        @Value("${app.thumbnails.max-source-pixels}") long maxSourcePixels,
+        @Value("${app.thumbnails.pdf-memory-mb}") long pdfMemoryMb
+    ) {
+        this.noteRepository = noteRepository;
+        this.storageService = storageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.thumbnailWidth = thumbnailWidth;
+        this.previewWidth = previewWidth;
+        this.maxSourcePixels = maxSourcePixels;
+        this.pdfMemoryBytes = pdfMemoryMb * 1024 * 1024;
+    }
+
+    @Async("thumbnailExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onNoteUploaded(NoteUploadedEvent event) {
+        render(event.noteId(), event.fileKey(), event.mimeType());
+    }
+
+    /**
+     * Renders the note's variants, or reuses them when another note with the
+     * same file already has, and records their keys on the note. Failures
+     * are logged and leave the keys unset for the sweep to retry.
+     */
+    public void render(Long noteId, String fileKey, String mimeType) {
+        String thumbnailKey = thumbnailKey(fileKey);
+        String previewKey = previewKey(fileKey);
+
+        try {
+            // Duplicate uploads share the stored file, and with it the rendered variants
+            if (!storageService.fileExists(thumbnailKey)) {
+                BufferedImage firstPage = renderFirstPage(fileKey, mimeType);
+
+                if (firstPage == null) {
+                    log.debug("No preview available for note {} ({})", noteId, mimeType);
+
+                    return;
+                }
+
+                BufferedImage preview = scaleToWidth(firstPage, previewWidth);
+
+                storageService.uploadBytes(previewKey, toJpeg(preview, 0.85f), JPEG);
+                storageService.uploadBytes(thumbnailKey, toJpeg(scaleToWidth(preview, thumbnailWidth), 0.8f), JPEG);
+            }
+
+            transactionTemplate.executeWithoutResult(status ->
+                    noteRepository.updatePreviewKeys(noteId, thumbnailKey, previewKey));
+
+            log.info("Thumbnails ready for note: {}", noteId);
+        } catch (Exception e) {
+            log.warn("Thumbnail generation failed for note: {}", noteId, e);
+        }
+    }
+
+    public String thumbnailKey(String fileKey) {
+        return fileKey + ".thumb-" + thumbnailWidth + ".jpg";
+    }
+
+    public String previewKey(String fileKey) {
+        return fileKey + ".preview-" + previewWidth + ".jpg";
+    }
+
+    /**
+     * Every object rendered from the stored file, whether or not it exists;
+     * they go when the file does.
+     */
+    public List<String> variantKeys(String fileKey) {
+        return List.of(thumbnailKey(fileKey), previewKey(fileKey));
+    }
+
+    private BufferedImage renderFirstPage(String fileKey, String mimeType) throws IOException {
+        if (mimeType == null) {
+            return null;
+        }
+
+        try (InputStream in = storageService.downloadFile(fileKey)) {
+            return switch (mimeType) {
+                case PDF -> renderPdf(in);
+                case PPT, PPTX -> renderSlide(in);
+                case DOCX -> readOoxmlThumbnail(in);
+                default -> mimeType.startsWith("image/") ? readImage(in) : null;
+            };
+        }
+    }
+
+    private BufferedImage renderPdf(InputStream in) throws IOException {
+        // Anything beyond the memory budget is buffered in a scratch file
+        try (PDDocument document = PDDocument.load(in, MemoryUsageSetting.setupMixed(pdfMemoryBytes))) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+
+            PDRectangle box = document.getPage(0).getCropBox();
+            float width = Math.max(box.getWidth(), 1f);
+            float height = Math.max(box.getHeight(), 1f);
+
+            // Render straight at preview size, capping the area for absurdly tall pages
+            float scale = previewWidth / width;
+            float maxPixels = (float) previewWidth * previewWidth * 4;
+
+            if (width * height * scale * scale > maxPixels) {
+                scale = (float) Math.sqrt(maxPixels / (width * height));
+            }
+
+            return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+        }
+    }
+
+    private BufferedImage renderSlide(InputStream in) throws IOException {
+        try (SlideShow<?, ?> slideShow = SlideShowFactory.create(in)) {
+            if (slideShow.getSlides().isEmpty()) {
+                return null;
+            }
+
+            Dimension size = slideShow.getPageSize();
+            double scale = (double) previewWidth / Math.max(size.width, 1);
+
+            BufferedImage image = new BufferedImage(
+                    previewWidth,
+                    Math.max(1, (int) Math.ceil(size.height * scale)),
+                    BufferedImage.TYPE_INT_RGB
+            );
+
+            Graphics2D g = image.createGraphics();
+
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setPaint(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.scale(scale, scale);
+
+                slideShow.getSlides().getFirst().draw(g);
+            } finally {
+                g.dispose();
+            }
+
+            return image;
+        }
+    }
+
+    // Word has no renderer here; use the thumbnail Office embeds when the document was saved with one
+    private BufferedImage readOoxmlThumbnail(InputStream in) throws IOException {
+        OPCPackage pkg;
+
+        try {
+            pkg = OPCPackage.open(in);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid OOXML package", e);
+        }
+
+        try {
+            List<PackagePart> parts = pkg.getPartsByRelationshipType(PackageRelationshipTypes.THUMBNAIL);
+
+            if (parts.isEmpty()) {
+                return null;
+            }
+
+            try (InputStream thumbnail = parts.getFirst().getInputStream()) {
+                return readImage(thumbnail);
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private BufferedImage readImage(InputStream in) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            if (imageInput == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(imageInput, true, true);
+
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+
+                if (width * height > maxSourcePixels) {
+                    log.warn("Skipping preview for {}x{} image, over the pixel limit", width, height);
+
+                    return null;
+                }
+
+                // Decode only every n-th pixel so large images never sit in memory at full size
+                int subsampling = (int) Math.max(1, width / previewWidth);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToWidth(BufferedImage source, int width) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int scaledHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        // Very tall pages are cropped to the top so previews keep a card-like shape
+        int targetHeight = Math.min(scaledHeight, targetWidth * 2);
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setPaint(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.drawImage(source, 0, 0, targetWidth, scaledHeight, null);
+        } finally {
+            g.dispose();
+        }
+
+        return scaled;
+    }
+
+    private static byte[] toJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        return out.toByteArray();
+    }
+}
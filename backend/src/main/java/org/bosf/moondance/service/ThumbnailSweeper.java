@@ -0,0 +1,101 @@
+package org.bosf.moondance.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders thumbnails for live notes that still have none: uploads whose
+ * render was rejected by the full thumbnail executor, failed, or was lost
+ * to a restart, and notes uploaded before thumbnails existed. Claiming a
+ * note counts an attempt, so one that never renders is given up on after
+ * a few tries, and several instances can sweep side by side.
+ */
+@Component
+public class ThumbnailSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailSweeper.class);
+
+    // A note is only picked up once the render started by its upload, or by an earlier sweep, has had time to finish
+    private static final String CLAIM_SQL =
+            "UPDATE notes SET thumbnail_attempts = thumbnail_attempts + 1, thumbnail_attempted_at = now() " +
+            "WHERE id IN (" +
+            "SELECT id FROM notes WHERE thumbnail_key IS NULL AND deleted_at IS NULL " +
+            "AND (mime_type IN (" + String.join(", ", Collections.nCopies(ThumbnailService.DOCUMENT_TYPES.size(), "?")) + ") " +
+            "OR mime_type LIKE 'image/%') " +
+            "AND thumbnail_attempts < ? AND COALESCE(thumbnail_attempted_at, created_at) < ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED" +
+            ") RETURNING id, file_key, mime_type";
+
+    private record PendingNote(Long id, String fileKey, String mimeType) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ThumbnailService thumbnailService;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${app.thumbnails.sweep-batch-size}")
+    private int batchSize;
+
+    @Value("${app.thumbnails.retry-delay-minutes}")
+    private long retryDelayMinutes;
+
+    @Value("${app.thumbnails.max-attempts}")
+    private int maxAttempts;
+
+    public ThumbnailSweeper(
+        JdbcTemplate jdbcTemplate,
+        ThumbnailService thumbnailService,
+        @Qualifier("thumbnailExecutor") ThreadPoolTaskExecutor executor
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.thumbnailService = thumbnailService;
+        this.executor = executor;
+    }
+
+    @Scheduled(fixedDelayString = "${app.thumbnails.sweep-interval-ms}")
+    public void sweep() {
+        // Leave room in the queue for renders of new uploads
+        int room = Math.min(batchSize, (executor.getQueueCapacity() - executor.getQueueSize()) / 2);
+
+        if (room <= 0) {
+            return;
+        }
+
+        List<Object> args = new ArrayList<>(ThumbnailService.DOCUMENT_TYPES);
+        args.add(maxAttempts);
+        args.add(LocalDateTime.now().minusMinutes(retryDelayMinutes));
+        args.add(room);
+
+        List<PendingNote> notes;
+
+        try {
+            notes = jdbcTemplate.query(
+                    CLAIM_SQL,
+                    (rs, rowNum) -> new PendingNote(rs.getLong("id"), rs.getString("file_key"), rs.getString("mime_type")),
+                    args.toArray()
+            );
+        } catch (RuntimeException e) {
+            log.warn("Failed to claim notes for the thumbnail sweep", e);
+
+            return;
+        }
+
+        for (PendingNote note : notes) {
+            executor.execute(() -> thumbnailService.render(note.id(), note.fileKey(), note.mimeType()));
+        }
+
+        if (!notes.isEmpty()) {
+            log.info("Thumbnail sweep queued {} notes", notes.size());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.bosf.moondance.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Time-decayed trending score kept in the log domain. A note's score is
+ * ln(sum of w * e^(lambda * (t - EPOCH))) over its weighted events, so every
+ * score decays at the same rate and the ranking never has to be recomputed:
+ * new events are folded in with a log-add, and untouched notes fall behind
+ * on their own.
+ */
+@Component
+public class TrendingScorer {
+
+    // Both are baked into stored scores; changing either means recomputing hot_score for every note
+    static final Duration HALF_LIFE = Duration.ofHours(24);
+    static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    // Beyond this gap between two log-domain scores the smaller one no longer changes their log-add
+    static final int MAX_LOG_ADD_GAP = 30;
+
+    private static final double LAMBDA = Math.log(2) / HALF_LIFE.toSeconds();
+
+    private final double viewWeight;
+    private final double downloadWeight;
+    private final double upvoteWeight;
+    private final double newNoteWeight;
+
+    public TrendingScorer(
+        @Value("${app.trending.view-weight}") double viewWeight,
+        @Value("${app.trending.download-weight}") double downloadWeight,
+        @Value("${app.trending.upvote-weight}") double upvoteWeight,
+        @Value("${app.trending.new-note-weight}") double newNoteWeight
+    ) {
+        this.viewWeight = viewWeight;
+        this.downloadWeight = downloadWeight;
+        this.upvoteWeight = upvoteWeight;
+        this.newNoteWeight = newNoteWeight;
+    }
+
+    /**
+     * Log-domain contribution of a batch of counter increments observed at
+     * {@code at}; negative infinity when the batch carries no weight.
+     */
+    public double contribution(NoteCounterBuffer.Delta delta, Instant at) {
+        double weight = delta.views() * viewWeight + delta.downloads() * downloadWeight + delta.upvotes() * upvoteWeight;
+
+        return Math.log(weight) + decayExponent(at);
+    }
+
+    /**
+     * Starting score of a note uploaded at {@code at}, so new notes get a
+     * short-lived place in the feed before anyone has opened them.
+     */
+    public double initialScore(Instant at) {
+        return Math.log(newNoteWeight) + decayExponent(at);
+    }
+
+    private static double decayExponent(Instant at) {
+        return LAMBDA * Duration.between(EPOCH, at).toSeconds();
+    }
+}
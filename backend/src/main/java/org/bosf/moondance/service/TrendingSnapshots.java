@@ -0,0 +1,146 @@
+package org.bosf.moondance.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Frozen trending rankings for the cursor feed. Scores only grow, so paging
+ * on the live hot_score skips every note that overtakes the cursor between
+ * two requests. The first page instead reads a ranking of the top notes,
+ * with the scores they had, from Redis; later pages read on from that list.
+ * Each school shares one ranking per refresh window, so the number of stored
+ * snapshots follows the number of schools rather than the traffic. Past its
+ * end, or once it has expired or when Redis is down, the feed falls back to
+ * keyset paging from the last snapshot score.
+ */
+@Component
+public class TrendingSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingSnapshots.class);
+
+    private static final String KEY_PREFIX = "moondance:trending-snapshot:";
+
+    // Served by idx_notes_school_hot without touching the table
+    private static final String RANKING_SQL =
+            "SELECT id, hot_score FROM notes WHERE school_id = ? AND deleted_at IS NULL " +
+            "ORDER BY hot_score DESC, id DESC LIMIT ?";
+
+    public record Entry(long id, double hotScore) {}
+
+    /**
+     * A stored ranking. {@code complete} is false when the school has more
+     * notes than the snapshot holds, so paging continues past its end.
+     */
+    public record Snapshot(String id, List<Entry> entries, boolean complete) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final int size;
+    private final long refreshSeconds;
+    private final Duration ttl;
+
+    public TrendingSnapshots(
+        JdbcTemplate jdbcTemplate,
+        StringRedisTemplate redisTemplate,
+        @Value("${app.trending.snapshot-size}") int size,
+        @Value("${app.trending.snapshot-refresh-seconds}") long refreshSeconds,
+        @Value("${app.trending.snapshot-ttl-minutes}") long ttlMinutes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.size = size;
+        this.refreshSeconds = refreshSeconds;
+        // A snapshot is handed out until its window closes and must outlive that by the time allowed for paging
+        this.ttl = Duration.ofSeconds(refreshSeconds).plusMinutes(ttlMinutes);
+    }
+
+    /**
+     * The school's ranking for the current refresh window, built and stored
+     * by whichever request gets there first; empty if it could not be
+     * stored, in which case the caller pages on live scores.
+     */
+    public Optional<Snapshot> current(Long schoolId) {
+        String id = schoolId + ":" + Instant.now().getEpochSecond() / refreshSeconds;
+        Optional<Snapshot> existing = get(schoolId, id);
+
+        if (existing.isPresent()) {
+            return existing;
+        }
+
+        List<Entry> entries = jdbcTemplate.query(
+                RANKING_SQL,
+                (rs, rowNum) -> new Entry(rs.getLong("id"), rs.getDouble("hot_score")),
+                schoolId,
+                size
+        );
+
+        String value = (entries.size() < size ? "c" : "p") + "," + entries.stream()
+                .map(entry -> entry.id() + ":" + entry.hotScore())
+                .collect(Collectors.joining(","));
+
+        boolean stored;
+
+        try {
+            stored = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + id, value, ttl));
+        } catch (RuntimeException e) {
+            log.warn("Failed to store trending snapshot for school {}: {}", schoolId, e.getMessage());
+
+            return Optional.empty();
+        }
+
+        // Another request ranked the same window first; page through its copy so every cursor sees one list
+        return stored ? Optional.of(new Snapshot(id, entries, entries.size() < size)) : get(schoolId, id);
+    }
+
+    /**
+     * The school's snapshot with this id, or empty if it expired, never
+     * existed, belongs to another school or Redis cannot be reached.
+     */
+    public Optional<Snapshot> get(Long schoolId, String id) {
+        int separator = id.indexOf(':');
+
+        if (separator < 0 || !id.substring(0, separator).equals(schoolId.toString()) || !isBucket(id.substring(separator + 1))) {
+            return Optional.empty();
+        }
+
+        String value;
+
+        try {
+            value = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read trending snapshot {}: {}", id, e.getMessage());
+
+            return Optional.empty();
+        }
+
+        if (value == null) {
+            return Optional.empty();
+        }
+
+        String[] parts = value.split(",");
+        List<Entry> entries = new ArrayList<>(parts.length - 1);
+
+        for (int i = 1; i < parts.length; i++) {
+            int colon = parts[i].indexOf(':');
+
+            entries.add(new Entry(Long.parseLong(parts[i].substring(0, colon)), Double.parseDouble(parts[i].substring(colon + 1))));
+        }
+
+        return Optional.of(new Snapshot(id, entries, parts[0].equals("c")));
+    }
+
+    private static boolean isBucket(String bucket) {
+        return !bucket.isEmpty() && bucket.length() <= 19 && bucket.chars().allMatch(Character::isDigit);
+    }
+}
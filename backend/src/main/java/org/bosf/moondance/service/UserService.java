@@ -0,0 +1,56 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.dto.UserDto;
+import org.bosf.moondance.entity.User;
+import org.bosf.moondance.exception.ApiException;
+import org.bosf.moondance.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class UserService {
+
+    private final UserRepository userRepository;
+
+    public UserService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public UserDto getCurrentUser(Long userId) {
+        return UserDto.fromEntity(findActive(userId));
+    }
+
+    @Transactional(readOnly = true)
+    public UserDto getPublicProfile(Long userId) {
+        return UserDto.publicProfile(findActive(userId));
+    }
+
+    @Transactional
+    public UserDto updateProfile(Long userId, UserDto.UpdateProfileRequest request) {
+        User user = findActive(userId);
+
+        if (request.name() != null) {
+            user.setName(request.name());
+        }
+
+        if (request.major() != null) {
+            user.setMajor(request.major());
+        }
+
+        if (request.graduationYear() != null) {
+            user.setGraduationYear(request.graduationYear());
+        }
+
+        if (request.avatarUrl() != null) {
+            user.setAvatarUrl(request.avatarUrl());
+        }
+
+        return UserDto.fromEntity(userRepository.save(user));
+    }
+
+    private User findActive(Long userId) {
+        return userRepository.findActiveById(userId)
+                .orElseThrow(() -> new ApiException.NotFoundException("User", userId));
+    }
+}
@@ -1,72 +1,153 @@
 package org.bosf.moondance.service;
 
 import org.bosf.moondance.dto.InteractionDto;
-import org.bosf.moondance.entity.Note;
-import org.bosf.moondance.entity.User;
-import org.bosf.moondance.entity.Vote;
 import org.bosf.moondance.exception.ApiException;
 import org.bosf.moondance.repository.NoteRepository;
-import org.bosf.moondance.repository.UserRepository;
 import org.bosf.moondance.repository.VoteRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 public class VoteService {
 
     private static final Logger log = LoggerFactory.getLogger(VoteService.class);
 
+    // One round trip: checks the note is live, inserts or updates the vote and hands back what it replaced
+    private static final String UPSERT_SQL =
+            "INSERT INTO votes (note_id, user_id, value, rating) " +
+            "SELECT n.id, ?, ?, CAST(? AS INTEGER) FROM notes n WHERE n.id = ? AND n.deleted_at IS NULL " +
+            "ON CONFLICT (note_id, user_id) DO UPDATE " +
+            "SET value = EXCLUDED.value, rating = COALESCE(EXCLUDED.rating, votes.rating), updated_at = now() " +
+            "RETURNING id, created_at, new.value AS value, new.rating AS rating, " +
+            "old.value AS previous_value, old.rating AS previous_rating";
+
+    // Matches the largest feed page
+    private static final int MAX_BULK_NOTE_IDS = 100;
+
+    // Inserts nothing when this user's upvote already went into the note's trending score
+    private static final String TRENDING_UPVOTE_SQL =
+            "INSERT INTO trending_upvotes (note_id, user_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM votes WHERE note_id = ? AND user_id = ? RETURNING value, rating";
+
+    private record VoteChange(
+        Long id,
+        LocalDateTime createdAt,
+        Integer value,
+        Integer rating,
+        Integer previousValue,
+        Integer previousRating
+    ) {}
+
+    private record RemovedVote(Integer value, Integer rating) {}
+
     private final VoteRepository voteRepository;
     private final NoteRepository noteRepository;
-    private final UserRepository userRepository;
-
-    public VoteService(VoteRepository voteRepository, NoteRepository noteRepository, UserRepository userRepository) {
+    private final NoteCounterBuffer noteCounterBuffer;
+    private final JdbcTemplate jdbcTemplate;
+
+    public VoteService(
+        VoteRepository voteRepository,
+        NoteRepository noteRepository,
+        NoteCounterBuffer noteCounterBuffer,
+        JdbcTemplate jdbcTemplate
+    ) {
         this.voteRepository = voteRepository;
         this.noteRepository = noteRepository;
-        this.userRepository = userRepository;
+        this.noteCounterBuffer = noteCounterBuffer;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    /**
+     * Records the vote of an authenticated user; the user id comes from the
+     * principal, so it is not loaded again here.
+     */
     @Transactional
     public InteractionDto.VoteResponse vote(Long noteId, Long userId, InteractionDto.VoteRequest request) {
-        Note note = noteRepository.findActiveById(noteId)
-                .orElseThrow(() -> new ApiException.NotFoundException("Note", noteId));
+        List<VoteChange> changes = jdbcTemplate.query(
+                UPSERT_SQL,
+                (rs, rowNum) -> new VoteChange(
+                        rs.getLong("id"),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("value", Integer.class),
+                        rs.getObject("rating", Integer.class),
+                        rs.getObject("previous_value", Integer.class),
+                        rs.getObject("previous_rating", Integer.class)
+                ),
+                userId,
+                request.getValue(),
+                request.getRating(),
+                noteId
+        );
+
+        if (changes.isEmpty()) {
+            throw new ApiException.NotFoundException("Note", noteId);
+        }
 
-        User user = userRepository.findActiveById(userId)
-                .orElseThrow(() -> new ApiException.NotFoundException("User", userId));
+        VoteChange change = changes.getFirst();
 
-        Vote vote = voteRepository.findByNoteIdAndUserId(noteId, userId)
-                .orElse(Vote.builder()
-                        .note(note)
-                        .user(user)
-                        .build());
+        applyVoteDelta(noteId, change.previousValue(), change.previousRating(), change.value(), change.rating());
 
-        vote.setValue(request.getValue());
+        // Each user's upvote feeds the trending score once, however often it is re-sent or removed and cast again
+        boolean turnedPositive = change.value() > 0 && (change.previousValue() == null || change.previousValue() <= 0);
 
-        if (request.getRating() != null) {
-            vote.setRating(request.getRating());
+        if (turnedPositive && jdbcTemplate.update(TRENDING_UPVOTE_SQL, noteId, userId) > 0) {
+            countUpvoteAfterCommit(noteId);
         }
 
-        vote = voteRepository.save(vote);
-
-        updateNoteStats(note);
-
         log.info("Vote recorded: note={}, user={}, value={}", noteId, userId, request.getValue());
 
-        return InteractionDto.VoteResponse.fromEntity(vote);
+        return InteractionDto.VoteResponse.builder()
+                .id(change.id())
+                .noteId(noteId)
+                .userId(userId)
+                .value(change.value())
+                .rating(change.rating())
+                .createdAt(change.createdAt())
+                .build();
+    }
+
+    // A rolled-back vote also rolls back its trending_upvotes row, so the buffer must not have counted it
+    private void countUpvoteAfterCommit(Long noteId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    noteCounterBuffer.increment(noteId, NoteCounterBuffer.Counter.UPVOTE);
+                }
+            });
+        } else {
+            noteCounterBuffer.increment(noteId, NoteCounterBuffer.Counter.UPVOTE);
+        }
     }
 
     @Transactional
     public void removeVote(Long noteId, Long userId) {
-        Vote vote = voteRepository.findByNoteIdAndUserId(noteId, userId)
-                .orElseThrow(() -> new ApiException.NotFoundException("Vote not found"));
+        List<RemovedVote> removed = jdbcTemplate.query(
+                DELETE_SQL,
+                (rs, rowNum) -> new RemovedVote(rs.getObject("value", Integer.class), rs.getObject("rating", Integer.class)),
+                noteId,
+                userId
+        );
+
+        if (removed.isEmpty()) {
+            throw new ApiException.NotFoundException("Vote not found");
+        }
 
-        Note note = vote.getNote();
-        
-        voteRepository.delete(vote);
+        RemovedVote vote = removed.getFirst();
 
-        updateNoteStats(note);
+        applyVoteDelta(noteId, vote.value(), vote.rating(), null, null);
 
         log.info("Vote removed: note={}, user={}", noteId, userId);
     }
@@ -78,15 +159,45 @@ public class VoteService {
                 .orElse(null);
     }
 
-    private void updateNoteStats(Note note) {
-        Long positiveCount = voteRepository.countPositiveByNoteId(note.getId());
-        Long negativeCount = voteRepository.countNegativeByNoteId(note.getId());
-        Double avgRating = voteRepository.averageRatingByNoteId(note.getId());
-        Long ratingCount = voteRepository.countRatingsByNoteId(note.getId());
+    @Transactional(readOnly = true)
+    public List<InteractionDto.VoteResponse> getUserVotes(Collection<Long> noteIds, Long userId) {
+        if (noteIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (noteIds.size() > MAX_BULK_NOTE_IDS) {
+            throw new ApiException.BadRequestException("At most " + MAX_BULK_NOTE_IDS + " note ids can be looked up at once");
+        }
+
+        return voteRepository.findByNoteIdInAndUserId(noteIds, userId).stream()
+                .map(InteractionDto.VoteResponse::fromEntity)
+                .toList();
+    }
+
+    @Scheduled(cron = "${app.votes.reconcile-cron}")
+    @Transactional
+    public void reconcileNoteStats() {
+        // Corrects drift in the running totals, e.g. from votes cast while a previous reconcile was running
+        int corrected = noteRepository.reconcileVoteTotals();
 
-        note.setVoteCount((int) (positiveCount - negativeCount));
-        note.setAverageRating(avgRating != null ? avgRating : 0.0);
+        if (corrected > 0) {
+            log.warn("Vote totals reconciled, corrected {} notes", corrected);
+        }
+    }
+
+    private void applyVoteDelta(Long noteId, Integer oldValue, Integer oldRating, Integer newValue, Integer newRating) {
+        int voteDelta = signum(newValue) - signum(oldValue);
+        long ratingSumDelta = (newRating != null ? newRating : 0) - (oldRating != null ? oldRating : 0);
+        int ratingCountDelta = (newRating != null ? 1 : 0) - (oldRating != null ? 1 : 0);
+
+        if (voteDelta == 0 && ratingSumDelta == 0 && ratingCountDelta == 0) {
+            return;
+        }
+
+        noteRepository.applyVoteDelta(noteId, voteDelta, ratingSumDelta, ratingCountDelta);
+    }
 
-        noteRepository.save(note);
+    private static int signum(Integer value) {
+        return value != null ? Integer.signum(value) : 0;
     }
 }
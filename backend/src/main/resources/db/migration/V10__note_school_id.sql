@@ -0,0 +1,31 @@
+-- School copied onto notes and reports so school-scoped queries skip the course/department joins
+ALTER TABLE notes ADD COLUMN school_id BIGINT REFERENCES schools(id);
+
+UPDATE notes n
+SET school_id = d.school_id
+FROM course_sessions cs
+JOIN courses c ON c.id = cs.course_id
+JOIN departments d ON d.id = c.department_id
+WHERE cs.id = n.course_session_id;
+
+ALTER TABLE notes ALTER COLUMN school_id SET NOT NULL;
+
+ALTER TABLE reports ADD COLUMN school_id BIGINT REFERENCES schools(id);
+
+UPDATE reports r
+SET school_id = n.school_id
+FROM notes n
+WHERE n.id = r.note_id;
+
+ALTER TABLE reports ALTER COLUMN school_id SET NOT NULL;
+
+-- School feeds lead with school_id; the global feed indexes from V9 only served them
+DROP INDEX IF EXISTS idx_notes_recent_feed;
+DROP INDEX IF EXISTS idx_notes_type_feed;
+DROP INDEX IF EXISTS idx_notes_trending_feed;
+
+CREATE INDEX idx_notes_school_recent ON notes(school_id, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX idx_notes_school_type ON notes(school_id, type, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX idx_notes_school_trending ON notes(school_id, download_count DESC, average_rating DESC, id DESC) WHERE deleted_at IS NULL;
+
+CREATE INDEX idx_reports_school_status ON reports(school_id, status, created_at DESC);
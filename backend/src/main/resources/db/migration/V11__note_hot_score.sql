@@ -0,0 +1,11 @@
+-- Time-decayed trending score, ln(sum of w * e^(lambda * (t - 2025-01-01))) over weighted events.
+-- Lambda is ln(2) / 24h, matching TrendingScorer; the counter flush folds new events in with a log-add.
+ALTER TABLE notes ADD COLUMN hot_score DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+-- Seed from the all-time totals as if they happened at upload, using the default weights
+UPDATE notes
+SET hot_score = ln(2) / 86400 * EXTRACT(EPOCH FROM created_at - TIMESTAMP '2025-01-01 00:00:00')
+              + ln(10 + view_count + 3 * download_count + 5 * GREATEST(vote_count, 0));
+
+DROP INDEX IF EXISTS idx_notes_school_trending;
+CREATE INDEX idx_notes_school_hot ON notes(school_id, hot_score DESC, id DESC) WHERE deleted_at IS NULL;
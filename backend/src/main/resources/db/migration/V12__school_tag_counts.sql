@@ -0,0 +1,81 @@
+-- Live notes per tag and school, so popular tags are read from an index instead of grouping note_tags
+CREATE TABLE school_tag_counts (
+    school_id BIGINT NOT NULL REFERENCES schools(id) ON DELETE CASCADE,
+    tag_id BIGINT NOT NULL REFERENCES tags(id) ON DELETE CASCADE,
+    note_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (school_id, tag_id)
+);
+
+INSERT INTO school_tag_counts (school_id, tag_id, note_count)
+SELECT n.school_id, nt.tag_id, COUNT(*)
+FROM note_tags nt
+JOIN notes n ON n.id = nt.note_id
+WHERE n.deleted_at IS NULL
+GROUP BY n.school_id, nt.tag_id;
+
+CREATE INDEX idx_school_tag_counts_popular ON school_tag_counts(school_id, note_count DESC, tag_id) WHERE note_count > 0;
+
+CREATE FUNCTION adjust_school_tag_count(p_school_id BIGINT, p_tag_id BIGINT, p_delta INT) RETURNS void AS $$
+    INSERT INTO school_tag_counts (school_id, tag_id, note_count)
+    VALUES (p_school_id, p_tag_id, p_delta)
+    ON CONFLICT (school_id, tag_id) DO UPDATE SET note_count = school_tag_counts.note_count + EXCLUDED.note_count
+$$ LANGUAGE sql;
+
+-- Tagging or untagging a live note
+CREATE FUNCTION note_tags_count_update() RETURNS trigger AS $$
+DECLARE
+    v_school_id BIGINT;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT school_id INTO v_school_id FROM notes WHERE id = NEW.note_id AND deleted_at IS NULL;
+
+        IF FOUND THEN
+            PERFORM adjust_school_tag_count(v_school_id, NEW.tag_id, 1);
+        END IF;
+
+        RETURN NEW;
+    END IF;
+
+    SELECT school_id INTO v_school_id FROM notes WHERE id = OLD.note_id AND deleted_at IS NULL;
+
+    IF FOUND THEN
+        PERFORM adjust_school_tag_count(v_school_id, OLD.tag_id, -1);
+    END IF;
+
+    RETURN OLD;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_note_tags_count
+    AFTER INSERT OR DELETE ON note_tags
+    FOR EACH ROW EXECUTE FUNCTION note_tags_count_update();
+
+-- Soft delete or restore moves all of a note's tags at once; a hard delete is handled before
+-- the cascade removes note_tags, since the note row is gone by the time those triggers fire
+CREATE FUNCTION notes_tag_count_update() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        IF OLD.deleted_at IS NULL THEN
+            PERFORM adjust_school_tag_count(OLD.school_id, tag_id, -1)
+            FROM note_tags WHERE note_id = OLD.id ORDER BY tag_id;
+        END IF;
+
+        RETURN OLD;
+    END IF;
+
+    IF (OLD.deleted_at IS NULL) <> (NEW.deleted_at IS NULL) THEN
+        PERFORM adjust_school_tag_count(NEW.school_id, tag_id, CASE WHEN NEW.deleted_at IS NULL THEN 1 ELSE -1 END)
+        FROM note_tags WHERE note_id = NEW.id ORDER BY tag_id;
+    END IF;
+
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_notes_tag_count_live
+    AFTER UPDATE OF deleted_at ON notes
+    FOR EACH ROW EXECUTE FUNCTION notes_tag_count_update();
+
+CREATE TRIGGER trg_notes_tag_count_delete
+    BEFORE DELETE ON notes
+    FOR EACH ROW EXECUTE FUNCTION notes_tag_count_update();
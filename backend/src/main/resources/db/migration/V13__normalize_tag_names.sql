@@ -0,0 +1,31 @@
+-- Tag names are now stored trimmed, lower-cased and with inner whitespace collapsed.
+-- Merge tags that only differed in case or spacing onto the oldest one.
+CREATE TEMPORARY TABLE tag_merges ON COMMIT DROP AS
+SELECT t.id AS tag_id, g.keep_id, g.normalized
+FROM tags t
+JOIN (
+    SELECT regexp_replace(lower(btrim(name)), '\s+', ' ', 'g') AS normalized, MIN(id) AS keep_id
+    FROM tags
+    GROUP BY 1
+) g ON g.normalized = regexp_replace(lower(btrim(t.name)), '\s+', ' ', 'g');
+
+-- Inserting and deleting note_tags rows keeps school_tag_counts right through its triggers
+INSERT INTO note_tags (note_id, tag_id)
+SELECT nt.note_id, m.keep_id
+FROM note_tags nt
+JOIN tag_merges m ON m.tag_id = nt.tag_id
+WHERE m.tag_id <> m.keep_id
+ON CONFLICT DO NOTHING;
+
+DELETE FROM note_tags nt
+USING tag_merges m
+WHERE m.tag_id = nt.tag_id AND m.tag_id <> m.keep_id;
+
+DELETE FROM tags t
+USING tag_merges m
+WHERE m.tag_id = t.id AND m.tag_id <> m.keep_id;
+
+UPDATE tags t
+SET name = m.normalized
+FROM tag_merges m
+WHERE m.tag_id = t.id AND t.name <> m.normalized;
@@ -0,0 +1,11 @@
+-- Users whose upvote has already been folded into a note's hot score, so removing and re-casting
+-- an upvote cannot push the same note up again. Kept when the vote itself is removed.
+CREATE TABLE trending_upvotes (
+    note_id BIGINT NOT NULL REFERENCES notes(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    PRIMARY KEY (note_id, user_id)
+);
+
+-- Current upvotes were counted when V11 seeded hot_score
+INSERT INTO trending_upvotes (note_id, user_id)
+SELECT note_id, user_id FROM votes WHERE value > 0;
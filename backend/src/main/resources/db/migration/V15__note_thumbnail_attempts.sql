@@ -0,0 +1,6 @@
+-- Render attempts made by the thumbnail sweep, so a note whose render keeps failing is given up on
+ALTER TABLE notes ADD COLUMN thumbnail_attempts SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE notes ADD COLUMN thumbnail_attempted_at TIMESTAMP;
+
+-- Notes still waiting for a thumbnail; a dropped or failed render leaves a note here
+CREATE INDEX idx_notes_thumbnail_missing ON notes(id) WHERE thumbnail_key IS NULL AND deleted_at IS NULL;
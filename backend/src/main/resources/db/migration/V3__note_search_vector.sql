@@ -0,0 +1,10 @@
+-- Weighted full-text search vector for notes, kept in sync by Postgres on every write
+DROP INDEX IF EXISTS idx_notes_search;
+
+ALTER TABLE notes ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(extracted_content, '')), 'C')
+) STORED;
+
+CREATE INDEX idx_notes_search_vector ON notes USING gin(search_vector);
@@ -0,0 +1,18 @@
+-- Running vote and rating totals so a vote can update note stats with one delta UPDATE
+ALTER TABLE notes ADD COLUMN rating_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE notes ADD COLUMN rating_sum BIGINT NOT NULL DEFAULT 0;
+
+UPDATE notes n
+SET vote_count = s.vote_total,
+    rating_count = s.rating_count,
+    rating_sum = s.rating_sum,
+    average_rating = CASE WHEN s.rating_count > 0 THEN CAST(s.rating_sum AS DOUBLE PRECISION) / s.rating_count ELSE 0 END
+FROM (
+    SELECT note_id,
+           SUM(CASE WHEN value > 0 THEN 1 WHEN value < 0 THEN -1 ELSE 0 END) AS vote_total,
+           COUNT(rating) AS rating_count,
+           COALESCE(SUM(rating), 0) AS rating_sum
+    FROM votes
+    GROUP BY note_id
+) s
+WHERE n.id = s.note_id;
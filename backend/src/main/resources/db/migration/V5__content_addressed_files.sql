@@ -0,0 +1,39 @@
+-- Content-addressed storage: notes with the same SHA-256 share one stored object
+CREATE INDEX idx_notes_file_hash ON notes(file_hash);
+
+-- Objects no longer referenced by any note, deleted by the cleanup job once unreferenced
+CREATE TABLE orphaned_files (
+    file_key VARCHAR(500) PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Collapse existing duplicates onto the object of the oldest note with each hash
+CREATE TEMPORARY TABLE canonical_files ON COMMIT DROP AS
+SELECT DISTINCT ON (file_hash) file_hash, file_key
+FROM notes
+WHERE file_hash IS NOT NULL
+ORDER BY file_hash, id;
+
+INSERT INTO orphaned_files (file_key)
+SELECT DISTINCT n.file_key
+FROM notes n
+JOIN canonical_files c ON c.file_hash = n.file_hash
+WHERE n.file_key <> c.file_key
+ON CONFLICT DO NOTHING;
+
+UPDATE notes n
+SET file_key = c.file_key
+FROM canonical_files c
+WHERE n.file_hash = c.file_hash AND n.file_key <> c.file_key;
+
+-- Share already extracted text with duplicates that have not been processed yet
+UPDATE notes n
+SET extracted_content = r.extracted_content,
+    processing_status = 'READY'
+FROM (
+    SELECT DISTINCT ON (file_hash) file_hash, extracted_content
+    FROM notes
+    WHERE processing_status = 'READY' AND file_hash IS NOT NULL
+    ORDER BY file_hash, id
+) r
+WHERE n.file_hash = r.file_hash AND n.processing_status IN ('PENDING', 'FAILED');
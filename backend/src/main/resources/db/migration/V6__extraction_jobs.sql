@@ -0,0 +1,22 @@
+-- Durable text extraction queue, claimed by workers with FOR UPDATE SKIP LOCKED
+CREATE TABLE extraction_jobs (
+    note_id BIGINT PRIMARY KEY REFERENCES notes(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(100),
+    lease_expires_at TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_extraction_jobs_queued ON extraction_jobs(run_after) WHERE status = 'QUEUED';
+CREATE INDEX idx_extraction_jobs_running ON extraction_jobs(lease_expires_at) WHERE status = 'RUNNING';
+
+-- Queue everything that was left unprocessed by the old in-memory executor
+INSERT INTO extraction_jobs (note_id)
+SELECT id FROM notes
+WHERE processing_status IN ('PENDING', 'PROCESSING', 'FAILED') AND deleted_at IS NULL;
+
+UPDATE notes SET processing_status = 'PENDING' WHERE processing_status = 'PROCESSING';
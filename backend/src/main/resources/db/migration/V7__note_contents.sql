@@ -0,0 +1,54 @@
+-- Extracted text lives in its own table so list queries only read note metadata
+CREATE TABLE note_contents (
+    note_id BIGINT PRIMARY KEY REFERENCES notes(id) ON DELETE CASCADE,
+    content TEXT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO note_contents (note_id, content)
+SELECT id, extracted_content FROM notes WHERE extracted_content IS NOT NULL;
+
+-- search_vector was generated from extracted_content; it is now maintained by triggers on both tables
+ALTER TABLE notes DROP COLUMN search_vector;
+ALTER TABLE notes DROP COLUMN extracted_content;
+ALTER TABLE notes ADD COLUMN search_vector tsvector;
+
+CREATE FUNCTION note_search_vector(title TEXT, description TEXT, content TEXT) RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+           setweight(to_tsvector('english', coalesce(description, '')), 'B') ||
+           setweight(to_tsvector('english', coalesce(content, '')), 'C')
+$$ LANGUAGE sql IMMUTABLE;
+
+UPDATE notes n
+SET search_vector = note_search_vector(n.title, n.description, (SELECT c.content FROM note_contents c WHERE c.note_id = n.id));
+
+CREATE INDEX idx_notes_search_vector ON notes USING gin(search_vector);
+
+CREATE FUNCTION notes_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := note_search_vector(
+        NEW.title,
+        NEW.description,
+        (SELECT content FROM note_contents WHERE note_id = NEW.id)
+    );
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+-- Only fires when title or description is written, so counter and vote updates skip it
+CREATE TRIGGER trg_notes_search_vector
+    BEFORE INSERT OR UPDATE OF title, description ON notes
+    FOR EACH ROW EXECUTE FUNCTION notes_search_vector_update();
+
+CREATE FUNCTION note_contents_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    UPDATE notes
+    SET search_vector = note_search_vector(title, description, CASE WHEN TG_OP = 'DELETE' THEN NULL ELSE NEW.content END)
+    WHERE id = CASE WHEN TG_OP = 'DELETE' THEN OLD.note_id ELSE NEW.note_id END;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_note_contents_search_vector
+    AFTER INSERT OR UPDATE OF content OR DELETE ON note_contents
+    FOR EACH ROW EXECUTE FUNCTION note_contents_search_vector_update();
@@ -0,0 +1,2 @@
+-- Larger first-page preview rendered next to the thumbnail
+ALTER TABLE notes ADD COLUMN preview_key VARCHAR(500);
@@ -0,0 +1,9 @@
+-- Keyset feeds: each index matches one feed's filter and sort order, ties broken by id
+CREATE INDEX idx_notes_course_session_feed ON notes(course_session_id, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX idx_notes_uploader_feed ON notes(uploader_id, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX idx_notes_type_feed ON notes(type, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX idx_notes_trending_feed ON notes(download_count DESC, average_rating DESC, id DESC) WHERE deleted_at IS NULL;
+
+-- Superseded by the partial index below
+DROP INDEX IF EXISTS idx_notes_created;
+CREATE INDEX idx_notes_recent_feed ON notes(created_at DESC, id DESC) WHERE deleted_at IS NULL;
@@ -0,0 +1,126 @@
+package org.bosf.moondance.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwoLevelCacheTest {
+
+    private final ConcurrentMapCache local = new ConcurrentMapCache("catalog");
+    private final FlakyCache remote = new FlakyCache();
+    private final AtomicInteger broadcasts = new AtomicInteger();
+
+    private TwoLevelCache cache(Duration retryAfter) {
+        return new TwoLevelCache("catalog", local, remote, new SimpleMeterRegistry(), new RemoteTierBreaker(retryAfter), broadcasts::incrementAndGet);
+    }
+
+    @Test
+    void remoteHitIsCopiedIntoLocal() {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1));
+        remote.put("school:1", "Test University");
+
+        assertThat(cache.get("school:1", String.class)).isEqualTo("Test University");
+        assertThat(local.get("school:1")).isNotNull();
+    }
+
+    @Test
+    void failedRemoteSkipsRedisUntilTheRetryWindowPasses() {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1));
+        remote.failing = true;
+
+        assertThat(cache.get("school:1")).isNull();
+        assertThat(cache.get("school:2")).isNull();
+        cache.put("school:3", "cached locally");
+
+        assertThat(remote.calls.get()).isEqualTo(1);
+        assertThat(cache.get("school:3", String.class)).isEqualTo("cached locally");
+    }
+
+    @Test
+    void remoteIsRetriedOnceTheWindowHasPassed() {
+        TwoLevelCache cache = cache(Duration.ZERO);
+        remote.failing = true;
+
+        assertThat(cache.get("school:1")).isNull();
+
+        remote.failing = false;
+        remote.put("school:1", "Test University");
+
+        assertThat(cache.get("school:1", String.class)).isEqualTo("Test University");
+    }
+
+    @Test
+    void evictAndClearReachRedisEvenWhileTheBreakerIsOpen() {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1));
+        remote.failing = true;
+        cache.get("school:1");
+        int callsBefore = remote.calls.get();
+
+        cache.evict("school:1");
+        cache.clear();
+
+        assertThat(remote.calls.get()).isEqualTo(callsBefore + 2);
+        assertThat(broadcasts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void clearLocalLeavesRedisAlone() {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1));
+        cache.put("school:1", "Test University");
+
+        cache.clearLocal();
+
+        assertThat(local.get("school:1")).isNull();
+        assertThat(remote.get("school:1")).isNotNull();
+        assertThat(broadcasts.get()).isZero();
+    }
+
+    // In-memory stand-in for the Redis tier that can be switched to throw like a Redis timeout
+    private static class FlakyCache extends ConcurrentMapCache {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean failing;
+
+        FlakyCache() {
+            super("remote");
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            call();
+
+            return super.lookup(key);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            call();
+            super.put(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            call();
+            super.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            call();
+            super.clear();
+        }
+
+        private void call() {
+            calls.incrementAndGet();
+
+            if (failing) {
+                throw new IllegalStateException("Redis command timed out");
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.bosf.moondance.repository;
+
+import jakarta.persistence.EntityManager;
+import org.bosf.moondance.dto.NoteDto;
+import org.bosf.moondance.entity.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the list queries against N+1 regressions: a page of notes mapped to
+ * DTOs must cost the same few statements however many rows it holds.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class NoteRepositoryStatementCountTest {
+
+    private static final int NOTES = 12;
+    private static final Pageable PAGE = PageRequest.of(0, 10);
+
+    // The select, the count and one batch for the tags
+    private static final long PAGE_STATEMENTS = 3;
+    // Slices skip the count
+    private static final long SLICE_STATEMENTS = 2;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private Statistics statistics;
+    private School school;
+    private CourseSession firstCourseSession;
+    private User firstUploader;
+
+    @BeforeEach
+    void setUp() {
+        school = persist(School.builder().name("Test University").domain("test.edu").build());
+
+        Department department = persist(Department.builder().code("CS").name("Computer Science").school(school).build());
+        Session session = persist(Session.builder().name("Fall 2026").type(Session.SessionType.FALL).year(2026).school(school).build());
+
+        List<Tag> tags = List.of(
+                persist(Tag.builder().name("midterm").build()),
+                persist(Tag.builder().name("final").build()),
+                persist(Tag.builder().name("recursion").build())
+        );
+
+        List<CourseSession> courseSessions = new ArrayList<>();
+        List<User> uploaders = new ArrayList<>();
+
+        // Every note gets its own course session, instructor and uploader so a lazy load would show up per row
+        for (int i = 0; i < NOTES; i++) {
+            Course course = persist(Course.builder().code("CS" + (100 + i)).title("Course " + i).department(department).build());
+            Instructor instructor = persist(Instructor.builder().name("Instructor " + i).department(department).build());
+
+            courseSessions.add(persist(CourseSession.builder().course(course).session(session).instructor(instructor).build()));
+            uploaders.add(persist(User.builder().email("user" + i + "@test.edu").passwordHash("hash").name("User " + i).school(school).build()));
+        }
+
+        for (int i = 0; i < NOTES; i++) {
+            persist(Note.builder()
+                    .title("Note " + i)
+                    .type(Note.NoteType.LECTURE_NOTES)
+                    .fileKey("notes/" + i)
+                    .fileSize(1024L)
+                    .mimeType("application/pdf")
+                    .courseSession(i % 2 == 0 ? courseSessions.getFirst() : courseSessions.get(i))
+                    .schoolId(school.getId())
+                    .uploader(i % 2 == 0 ? uploaders.getFirst() : uploaders.get(i))
+                    .tags(Set.of(tags.get(i % tags.size()), tags.get((i + 1) % tags.size())))
+                    .hotScore((double) i)
+                    .build());
+        }
+
+        firstCourseSession = courseSessions.getFirst();
+        firstUploader = uploaders.getFirst();
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void recentPageLoadsInFixedStatements() {
+        List<NoteDto> notes = noteRepository.findRecentBySchoolId(school.getId(), PAGE).map(NoteDto::fromEntity).getContent();
+
+        assertThat(notes).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    void trendingPageLoadsInFixedStatements() {
+        List<NoteDto> notes = noteRepository.findTrendingBySchoolId(school.getId(), PAGE).map(NoteDto::fromEntity).getContent();
+
+        assertThat(notes).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    void typePageLoadsInFixedStatements() {
+        List<NoteDto> notes = noteRepository.findByTypeAndSchoolId(Note.NoteType.LECTURE_NOTES, school.getId(), PAGE)
+                .map(NoteDto::fromEntity)
+                .getContent();
+
+        assertThat(notes).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    void courseSessionAndUploaderPagesLoadInFixedStatements() {
+        assertThat(noteRepository.findByCourseSessionId(firstCourseSession.getId(), PAGE).map(NoteDto::fromEntity).getContent()).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_STATEMENTS);
+
+        statistics.clear();
+
+        assertThat(noteRepository.findByUploaderId(firstUploader.getId(), PAGE).map(NoteDto::fromEntity).getContent()).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    void keysetSlicesLoadInFixedStatements() {
+        LocalDateTime later = LocalDateTime.now().plusDays(1);
+
+        List<NoteDto> recent = noteRepository.findRecentBySchoolIdBefore(school.getId(), later, Long.MAX_VALUE, PAGE)
+                .map(NoteDto::fromEntity)
+                .getContent();
+
+        assertThat(recent).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(SLICE_STATEMENTS);
+
+        statistics.clear();
+
+        List<NoteDto> trending = noteRepository.findTrendingBySchoolIdBefore(school.getId(), Double.MAX_VALUE, Long.MAX_VALUE, PAGE)
+                .map(NoteDto::fromEntity)
+                .getContent();
+
+        assertThat(trending).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(SLICE_STATEMENTS);
+    }
+
+    @Test
+    void snapshotPageLoadsInFixedStatements() {
+        List<Long> ids = noteRepository.findRecentBySchoolId(school.getId(), PAGE).map(Note::getId).getContent();
+
+        statistics.clear();
+
+        List<NoteDto> notes = noteRepository.findActiveWithDetailsByIdIn(ids).stream().map(NoteDto::fromEntity).toList();
+
+        assertThat(notes).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(SLICE_STATEMENTS);
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+
+        return entity;
+    }
+}
@@ -0,0 +1,104 @@
+package org.bosf.moondance.service;
+
+import org.apache.tika.sax.ToTextContentHandler;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BudgetedContentHandlerTest {
+
+    private static final Duration PLENTY_OF_TIME = Duration.ofMinutes(5);
+    private static final long PLENTY_OF_ALLOCATION = Long.MAX_VALUE / 2;
+
+    @Test
+    void passesEventsThroughWithinBudget() throws Exception {
+        ToTextContentHandler text = new ToTextContentHandler();
+        BudgetedContentHandler handler = new BudgetedContentHandler(text, PLENTY_OF_TIME, PLENTY_OF_ALLOCATION, 2);
+
+        page(handler, "page");
+        characters(handler, "first ");
+        page(handler, "slide-content");
+        characters(handler, "second");
+
+        assertThat(text.toString()).isEqualTo("first second");
+    }
+
+    @Test
+    void stopsAfterThePageLimit() throws Exception {
+        BudgetedContentHandler handler = new BudgetedContentHandler(new ToTextContentHandler(), PLENTY_OF_TIME, PLENTY_OF_ALLOCATION, 2);
+
+        page(handler, "page");
+        page(handler, "slide-content");
+
+        assertThatThrownBy(() -> page(handler, "page"))
+                .isInstanceOf(BudgetExceededException.class)
+                .hasMessageContaining("page limit of 2");
+    }
+
+    @Test
+    void onlyCountsPageAndSlideDivs() throws Exception {
+        BudgetedContentHandler handler = new BudgetedContentHandler(new ToTextContentHandler(), PLENTY_OF_TIME, PLENTY_OF_ALLOCATION, 1);
+
+        page(handler, "page");
+
+        for (int i = 0; i < 10; i++) {
+            page(handler, "annotation");
+            page(handler, null);
+        }
+
+        assertThatThrownBy(() -> page(handler, "page")).isInstanceOf(BudgetExceededException.class);
+    }
+
+    @Test
+    void stopsOnceTheTimeBudgetIsSpent() {
+        BudgetedContentHandler handler = new BudgetedContentHandler(new ToTextContentHandler(), Duration.ofMillis(-1), PLENTY_OF_ALLOCATION, 100);
+
+        assertThatThrownBy(() -> characters(handler, "late"))
+                .isInstanceOf(BudgetExceededException.class)
+                .hasMessageContaining("time budget");
+    }
+
+    @Test
+    void stopsOnceTheAllocationBudgetIsSpent() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        BudgetedContentHandler handler = new BudgetedContentHandler(new ToTextContentHandler(), PLENTY_OF_TIME, 1024, 100);
+
+        assertThatThrownBy(() -> characters(handler, "x".repeat(64 * 1024)))
+                .isInstanceOf(BudgetExceededException.class)
+                .hasMessageContaining("allocation budget of 1024 bytes");
+    }
+
+    @Test
+    void findLocatesTheBudgetErrorInACauseChain() {
+        BudgetExceededException budgetExceeded = new BudgetExceededException("time budget exceeded");
+        RuntimeException wrapped = new RuntimeException(new IllegalStateException(budgetExceeded));
+
+        assertThat(BudgetExceededException.find(wrapped)).isSameAs(budgetExceeded);
+        assertThat(BudgetExceededException.isCauseOf(new RuntimeException("other"))).isFalse();
+    }
+
+    private static void page(BudgetedContentHandler handler, String cssClass) throws Exception {
+        AttributesImpl atts = new AttributesImpl();
+
+        if (cssClass != null) {
+            atts.addAttribute("", "class", "class", "CDATA", cssClass);
+        }
+
+        handler.startElement("http://www.w3.org/1999/xhtml", "div", "div", atts);
+        handler.endElement("http://www.w3.org/1999/xhtml", "div", "div");
+    }
+
+    private static void characters(BudgetedContentHandler handler, String text) throws Exception {
+        char[] chars = text.toCharArray();
+
+        handler.characters(chars, 0, chars.length);
+    }
+}
@@ -0,0 +1,95 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.entity.Note;
+import org.bosf.moondance.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeedCursorTest {
+
+    @Test
+    void recentCursorRoundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+        Note note = Note.builder().id(42L).createdAt(createdAt).build();
+
+        FeedCursor.Recent cursor = FeedCursor.parseRecent(FeedCursor.recent(note));
+
+        assertThat(cursor).isEqualTo(new FeedCursor.Recent(createdAt, 42L));
+    }
+
+    @Test
+    void trendingCursorRoundTrips() {
+        Note note = Note.builder().id(7L).hotScore(1234.5678901234).build();
+
+        FeedCursor.Trending cursor = FeedCursor.parseTrending(FeedCursor.trending(note));
+
+        assertThat(cursor).isEqualTo(new FeedCursor.Trending(null, 0, 1234.5678901234, 7L));
+    }
+
+    @Test
+    void snapshotTrendingCursorRoundTrips() {
+        String snapshotId = "3:29862720";
+
+        FeedCursor.Trending cursor = FeedCursor.parseTrending(FeedCursor.trending(snapshotId, 40, 351.25, 9L));
+
+        assertThat(cursor).isEqualTo(new FeedCursor.Trending(snapshotId, 40, 351.25, 9L));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        Note note = Note.builder().id(Long.MAX_VALUE).createdAt(LocalDateTime.of(2026, 1, 1, 0, 0, 0, 1)).build();
+
+        assertThat(FeedCursor.recent(note)).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorStartsAheadOfEveryNote() {
+        FeedCursor.Recent recent = FeedCursor.parseRecent(null);
+        FeedCursor.Trending trending = FeedCursor.parseTrending(" ");
+
+        assertThat(recent.createdAt()).isAfter(LocalDateTime.now().plusYears(1000));
+        assertThat(recent.id()).isEqualTo(Long.MAX_VALUE);
+        assertThat(trending.snapshotId()).isNull();
+        assertThat(trending.offset()).isZero();
+        assertThat(trending.hotScore()).isEqualTo(Double.MAX_VALUE);
+        assertThat(trending.id()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void cursorOfOneFeedIsRejectedByTheOther() {
+        Note note = Note.builder().id(1L).createdAt(LocalDateTime.now()).hotScore(1.0).build();
+
+        assertThatThrownBy(() -> FeedCursor.parseTrending(FeedCursor.recent(note)))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseRecent(FeedCursor.trending(note)))
+                .isInstanceOf(ApiException.BadRequestException.class);
+    }
+
+    @Test
+    void malformedCursorsAreBadRequests() {
+        assertThatThrownBy(() -> FeedCursor.parseRecent("not base64!"))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseRecent(encode("r|2026-01-01T00:00")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseRecent(encode("r|yesterday|1")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseTrending(encode("t|1.0|1")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseTrending(encode("t||0|1.0|1|extra")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseTrending(encode("t||0|hot|1")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> FeedCursor.parseTrending(encode("t|snap|-20|1.0|1")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
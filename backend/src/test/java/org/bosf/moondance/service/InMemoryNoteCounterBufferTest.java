@@ -0,0 +1,80 @@
+package org.bosf.moondance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryNoteCounterBufferTest {
+
+    @Test
+    void drainSumsIncrementsPerNote() {
+        InMemoryNoteCounterBuffer buffer = new InMemoryNoteCounterBuffer();
+
+        buffer.increment(1L, NoteCounterBuffer.Counter.VIEW);
+        buffer.increment(1L, NoteCounterBuffer.Counter.VIEW);
+        buffer.increment(1L, NoteCounterBuffer.Counter.UPVOTE);
+        buffer.increment(2L, NoteCounterBuffer.Counter.DOWNLOAD);
+
+        Map<Long, NoteCounterBuffer.Delta> deltas = buffer.drain();
+
+        assertThat(deltas).containsEntry(1L, new NoteCounterBuffer.Delta(2, 0, 1));
+        assertThat(deltas).containsEntry(2L, new NoteCounterBuffer.Delta(0, 1, 0));
+        assertThat(buffer.drain()).isEmpty();
+    }
+
+    @Test
+    void restorePutsDeltasBackForTheNextDrain() {
+        InMemoryNoteCounterBuffer buffer = new InMemoryNoteCounterBuffer();
+
+        buffer.restore(Map.of(1L, new NoteCounterBuffer.Delta(3, 2, 1)));
+
+        assertThat(buffer.pendingIncrements()).isEqualTo(6);
+        assertThat(buffer.drain()).containsEntry(1L, new NoteCounterBuffer.Delta(3, 2, 1));
+    }
+
+    @Test
+    void noIncrementIsLostToConcurrentDrains() throws Exception {
+        InMemoryNoteCounterBuffer buffer = new InMemoryNoteCounterBuffer();
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    buffer.increment((long) (i % 16), NoteCounterBuffer.Counter.VIEW);
+                }
+            }));
+        }
+
+        long drained = 0;
+
+        while (!writers.stream().allMatch(Future::isDone)) {
+            drained += views(buffer.drain());
+        }
+
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+
+        drained += views(buffer.drain());
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(drained).isEqualTo((long) threads * perThread);
+    }
+
+    private static long views(Map<Long, NoteCounterBuffer.Delta> deltas) {
+        return deltas.values().stream().mapToLong(NoteCounterBuffer.Delta::views).sum();
+    }
+}
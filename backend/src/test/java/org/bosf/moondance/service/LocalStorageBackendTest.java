@@ -0,0 +1,181 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.exception.ApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalStorageBackendTest {
+
+    private static final String KEY = "notes/abc123";
+    private static final String DISPOSITION = "attachment; filename=\"lecture 1.pdf\"";
+    private static final Duration EXPIRATION = Duration.ofMinutes(10);
+
+    @TempDir
+    private Path root;
+
+    private LocalStorageBackend storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = new LocalStorageBackend(root.toString(), "http://localhost:8080/", "test-secret");
+    }
+
+    @Test
+    void presignedGetVerifies() {
+        Map<String, String> query = query(storage.presignGet(KEY, DISPOSITION, EXPIRATION));
+
+        assertThatCode(() -> storage.verifyDownload(KEY, query.get("disposition"), Long.parseLong(query.get("expires")), query.get("signature")))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void presignedGetPointsAtTheFileEndpoint() {
+        assertThat(storage.presignGet(KEY, null, EXPIRATION)).startsWith("http://localhost:8080" + LocalStorageBackend.URL_PREFIX + KEY + "?");
+    }
+
+    @Test
+    void tamperedGetIsForbidden() {
+        Map<String, String> query = query(storage.presignGet(KEY, DISPOSITION, EXPIRATION));
+        long expires = Long.parseLong(query.get("expires"));
+        String signature = query.get("signature");
+
+        assertThatThrownBy(() -> storage.verifyDownload("notes/other", query.get("disposition"), expires, signature))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+        assertThatThrownBy(() -> storage.verifyDownload(KEY, "inline", expires, signature))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+        assertThatThrownBy(() -> storage.verifyDownload(KEY, query.get("disposition"), expires + 3600, signature))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+        assertThatThrownBy(() -> storage.verifyDownload(KEY, query.get("disposition"), expires, "not*base64"))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+    }
+
+    @Test
+    void signatureFromAnotherSecretIsForbidden() throws Exception {
+        LocalStorageBackend other = new LocalStorageBackend(root.toString(), "http://localhost:8080", "other-secret");
+        Map<String, String> query = query(other.presignGet(KEY, null, EXPIRATION));
+
+        assertThatThrownBy(() -> storage.verifyDownload(KEY, null, Long.parseLong(query.get("expires")), query.get("signature")))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+    }
+
+    @Test
+    void expiredGetIsForbidden() {
+        Map<String, String> query = query(storage.presignGet(KEY, null, Duration.ofMinutes(-1)));
+
+        assertThatThrownBy(() -> storage.verifyDownload(KEY, null, Long.parseLong(query.get("expires")), query.get("signature")))
+                .isInstanceOf(ApiException.ForbiddenException.class)
+                .hasMessageContaining("expired");
+    }
+
+    @Test
+    void presignedPutStoresMatchingBody() throws Exception {
+        byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+        String sha256 = sha256(body);
+
+        StorageBackend.PresignedUpload upload = storage.presignPut(KEY, "text/plain", body.length, sha256, EXPIRATION);
+        Map<String, String> query = query(upload.url());
+
+        storage.acceptUpload(KEY, new ByteArrayInputStream(body), body.length, "text/plain", sha256,
+                Long.parseLong(query.get("expires")), query.get("signature"));
+
+        assertThat(storage.describe(KEY)).contains(new StorageBackend.StoredObject(body.length, "text/plain", sha256));
+
+        try (InputStream in = storage.get(KEY)) {
+            assertThat(in.readAllBytes()).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void putWithDifferentTypeOrSizeIsForbidden() {
+        byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+        String sha256 = sha256(body);
+        Map<String, String> query = query(storage.presignPut(KEY, "text/plain", body.length, sha256, EXPIRATION).url());
+        long expires = Long.parseLong(query.get("expires"));
+
+        assertThatThrownBy(() -> storage.acceptUpload(KEY, new ByteArrayInputStream(body), body.length, "text/html", sha256, expires, query.get("signature")))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+        assertThatThrownBy(() -> storage.acceptUpload(KEY, new ByteArrayInputStream(body), body.length + 1, "text/plain", sha256, expires, query.get("signature")))
+                .isInstanceOf(ApiException.ForbiddenException.class);
+        assertThat(storage.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void putWithBodyNotMatchingTheSignedChecksumIsRejected() {
+        byte[] signed = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] sent = "HELLO".getBytes(StandardCharsets.UTF_8);
+        String sha256 = sha256(signed);
+        Map<String, String> query = query(storage.presignPut(KEY, "text/plain", signed.length, sha256, EXPIRATION).url());
+
+        assertThatThrownBy(() -> storage.acceptUpload(KEY, new ByteArrayInputStream(sent), sent.length, "text/plain", sha256,
+                Long.parseLong(query.get("expires")), query.get("signature")))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThat(storage.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void putWithBodyLongerThanTheSignedSizeIsRejected() {
+        byte[] signed = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] sent = "hello, and then some".getBytes(StandardCharsets.UTF_8);
+        String sha256 = sha256(signed);
+        Map<String, String> query = query(storage.presignPut(KEY, "text/plain", signed.length, sha256, EXPIRATION).url());
+
+        assertThatThrownBy(() -> storage.acceptUpload(KEY, new ByteArrayInputStream(sent), signed.length, "text/plain", sha256,
+                Long.parseLong(query.get("expires")), query.get("signature")))
+                .isInstanceOf(ApiException.BadRequestException.class)
+                .hasMessageContaining("signed size");
+        assertThat(storage.exists(KEY)).isFalse();
+    }
+
+    @Test
+    void pathOfResolvesInsideTheRoot() {
+        assertThat(storage.pathOf(KEY)).isEqualTo(root.toAbsolutePath().normalize().resolve("notes").resolve("abc123"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "/etc/passwd", "../secret", "notes/../../secret", "notes/./abc", "notes//abc", "notes/", ".meta/notes/abc", ".tmp/object-1", "notes/.hidden"})
+    void pathOfRejectsKeysThatEscapeOrHitInternalFolders(String key) {
+        assertThatThrownBy(() -> storage.pathOf(key))
+                .isInstanceOf(ApiException.BadRequestException.class);
+    }
+
+    @Test
+    void presigningRejectsInvalidKeys() {
+        assertThatThrownBy(() -> storage.presignGet("../secret", null, EXPIRATION))
+                .isInstanceOf(ApiException.BadRequestException.class);
+        assertThatThrownBy(() -> storage.presignPut("../secret", "text/plain", 1, "00", EXPIRATION))
+                .isInstanceOf(ApiException.BadRequestException.class);
+    }
+
+    private static Map<String, String> query(String url) {
+        Map<String, String> params = new HashMap<>();
+
+        for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+            int eq = pair.indexOf('=');
+
+            params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+
+        return params;
+    }
+
+    private static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(StorageService.newSha256().digest(bytes));
+    }
+}
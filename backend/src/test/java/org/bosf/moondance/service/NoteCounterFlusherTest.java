@@ -0,0 +1,77 @@
+package org.bosf.moondance.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class NoteCounterFlusherTest {
+
+    private final TrendingScorer scorer = new TrendingScorer(1, 3, 5, 10);
+
+    private JdbcTemplate jdbcTemplate;
+    private InMemoryNoteCounterBuffer buffer;
+    private NoteCounterFlusher flusher;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE notes (id BIGINT PRIMARY KEY, view_count BIGINT NOT NULL, " +
+                "download_count BIGINT NOT NULL, hot_score DOUBLE PRECISION NOT NULL)");
+
+        buffer = new InMemoryNoteCounterBuffer();
+        flusher = new NoteCounterFlusher(buffer, jdbcTemplate, new DataSourceTransactionManager(dataSource), scorer, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void flushFoldsContributionIntoRecentScore() {
+        Instant now = Instant.now();
+        double initial = scorer.initialScore(now);
+
+        insertNote(1L, initial);
+        buffer.increment(1L, NoteCounterBuffer.Counter.VIEW);
+        buffer.increment(1L, NoteCounterBuffer.Counter.DOWNLOAD);
+
+        flusher.flush();
+
+        double contribution = scorer.contribution(new NoteCounterBuffer.Delta(1, 1, 0), now);
+        double expected = Math.max(initial, contribution) + Math.log1p(Math.exp(-Math.abs(initial - contribution)));
+
+        assertThat(hotScore(1L)).isCloseTo(expected, within(1e-3));
+        assertThat(jdbcTemplate.queryForObject("SELECT view_count FROM notes WHERE id = 1", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT download_count FROM notes WHERE id = 1", Long.class)).isEqualTo(1L);
+    }
+
+    @Test
+    void flushReplacesScoreOfLongIdleNote() {
+        // About 1100 half-lives back, so the gap is far past where exp() underflows in Postgres
+        insertNote(1L, scorer.initialScore(Instant.now().minus(Duration.ofDays(1100))));
+        buffer.increment(1L, NoteCounterBuffer.Counter.VIEW);
+
+        flusher.flush();
+
+        double contribution = scorer.contribution(new NoteCounterBuffer.Delta(1, 0, 0), Instant.now());
+
+        assertThat(hotScore(1L)).isCloseTo(contribution, within(1e-3));
+        assertThat(buffer.pendingIncrements()).isZero();
+    }
+
+    private void insertNote(Long id, double hotScore) {
+        jdbcTemplate.update("INSERT INTO notes (id, view_count, download_count, hot_score) VALUES (?, 0, 0, ?)", id, hotScore);
+    }
+
+    private double hotScore(Long id) {
+        return jdbcTemplate.queryForObject("SELECT hot_score FROM notes WHERE id = ?", Double.class, id);
+    }
+}
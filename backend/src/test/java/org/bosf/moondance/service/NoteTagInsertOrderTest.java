@@ -0,0 +1,165 @@
+package org.bosf.moondance.service;
+
+import jakarta.persistence.EntityManager;
+import org.bosf.moondance.entity.*;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two uploads sharing tags must not deadlock on the per-school tag counts.
+ * H2 has no V12 trigger, so a stand-in locks the tag's row for every
+ * note_tags insert and then waits for the other upload, which is the
+ * interleaving that deadlocks when the two insert their tags in opposite
+ * orders.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteTagInsertOrderTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long schoolId;
+    private CourseSession courseSession;
+    private User uploader;
+    private Tag first;
+    private Tag second;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            School school = persist(School.builder().name("Test University").domain("test.edu").build());
+            Department department = persist(Department.builder().code("CS").name("Computer Science").school(school).build());
+            Session session = persist(Session.builder().name("Fall 2026").type(Session.SessionType.FALL).year(2026).school(school).build());
+            Course course = persist(Course.builder().code("CS101").title("Course").department(department).build());
+            Instructor instructor = persist(Instructor.builder().name("Instructor").department(department).build());
+
+            schoolId = school.getId();
+            courseSession = persist(CourseSession.builder().course(course).session(session).instructor(instructor).build());
+            uploader = persist(User.builder().email("user@test.edu").passwordHash("hash").name("User").school(school).build());
+            first = persist(Tag.builder().name("midterm").build());
+            second = persist(Tag.builder().name("recursion").build());
+        });
+
+        LockTagRow.barrier = new CyclicBarrier(2);
+
+        jdbcTemplate.execute("SET DEFAULT_LOCK_TIMEOUT 5000");
+        jdbcTemplate.execute("CREATE TRIGGER lock_tag_row AFTER INSERT ON note_tags FOR EACH ROW CALL \"" + LockTagRow.class.getName() + "\"");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS lock_tag_row");
+    }
+
+    @Test
+    void uploadsSharingTagsInsertThemInTheSameOrder() {
+        CompletableFuture<Void> forward = CompletableFuture.runAsync(() -> upload("forward", List.of(first, second)));
+        CompletableFuture<Void> backward = CompletableFuture.runAsync(() -> upload("backward", List.of(second, first)));
+
+        CompletableFuture.allOf(forward, backward).orTimeout(30, TimeUnit.SECONDS).join();
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM note_tags", Integer.class);
+
+        assertThat(rows).isEqualTo(4);
+    }
+
+    @Test
+    void resolvedTagsComeBackInIdOrder() {
+        assertThat(TagService.inIdOrder(List.of(second, first))).containsExactly(first, second);
+    }
+
+    private void upload(String title, List<Tag> tags) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Tag> ordered = TagService.inIdOrder(tags.stream().map(tag -> entityManager.merge(tag)).toList());
+
+            entityManager.persist(Note.builder()
+                    .title(title)
+                    .type(Note.NoteType.LECTURE_NOTES)
+                    .fileKey("notes/" + title)
+                    .fileSize(1024L)
+                    .mimeType("application/pdf")
+                    .courseSession(entityManager.merge(courseSession))
+                    .schoolId(schoolId)
+                    .uploader(entityManager.merge(uploader))
+                    .tags(ordered)
+                    .hotScore(0.0)
+                    .build());
+            entityManager.flush();
+        });
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+
+        return entity;
+    }
+
+    // Stands in for adjust_school_tag_count: holds the tag's row until commit, then lets the other upload catch up
+    public static class LockTagRow implements Trigger {
+
+        static volatile CyclicBarrier barrier;
+
+        private int tagColumn;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+            try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, "TAG_ID")) {
+                columns.next();
+                tagColumn = columns.getInt("ORDINAL_POSITION") - 1;
+            }
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            try (PreparedStatement lock = conn.prepareStatement("UPDATE tags SET color = color WHERE id = ?")) {
+                lock.setObject(1, newRow[tagColumn]);
+                lock.executeUpdate();
+            }
+
+            try {
+                barrier.await(1, TimeUnit.SECONDS);
+            } catch (TimeoutException | BrokenBarrierException e) {
+                // The other upload is already queued behind this one's lock
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.bosf.moondance.service;
+
+import org.bosf.moondance.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TagServiceTest {
+
+    @Test
+    void normalizeTrimsLowerCasesAndCollapsesWhitespace() {
+        assertThat(TagService.normalize("  Linear   Algebra\t")).isEqualTo("linear algebra");
+        assertThat(TagService.normalize("Data\n\nStructures")).isEqualTo("data structures");
+    }
+
+    @Test
+    void normalizeLowerCasesIndependentlyOfTheDefaultLocale() {
+        assertThat(TagService.normalize("TITLE")).isEqualTo("title");
+    }
+
+    @Test
+    void normalizeTurnsBlankAndMissingNamesIntoEmpty() {
+        assertThat(TagService.normalize(null)).isEmpty();
+        assertThat(TagService.normalize(" \t\n")).isEmpty();
+    }
+
+    @Test
+    void normalizeAcceptsNamesUpToTheLimit() {
+        assertThat(TagService.normalize("a".repeat(100))).hasSize(100);
+        assertThat(TagService.normalize("  " + "a".repeat(100) + "  ")).hasSize(100);
+    }
+
+    @Test
+    void normalizeRejectsNamesOverTheLimit() {
+        assertThatThrownBy(() -> TagService.normalize("a".repeat(101)))
+                .isInstanceOf(ApiException.BadRequestException.class)
+                .hasMessageContaining("100 characters");
+    }
+}
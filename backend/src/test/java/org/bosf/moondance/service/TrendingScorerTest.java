@@ -0,0 +1,61 @@
+package org.bosf.moondance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TrendingScorerTest {
+
+    private final TrendingScorer scorer = new TrendingScorer(1, 3, 5, 10);
+
+    private final Instant now = Instant.parse("2026-06-01T12:00:00Z");
+
+    @Test
+    void contributionIsLogOfWeightedSumAtTheEpoch() {
+        double score = scorer.contribution(new NoteCounterBuffer.Delta(2, 1, 1), TrendingScorer.EPOCH);
+
+        assertThat(score).isCloseTo(Math.log(2 * 1 + 3 + 5), within(1e-9));
+    }
+
+    @Test
+    void scoreGrowsByLnTwoEveryHalfLife() {
+        NoteCounterBuffer.Delta view = new NoteCounterBuffer.Delta(1, 0, 0);
+
+        double before = scorer.contribution(view, now);
+        double after = scorer.contribution(view, now.plus(TrendingScorer.HALF_LIFE));
+
+        assertThat(after - before).isCloseTo(Math.log(2), within(1e-9));
+    }
+
+    @Test
+    void halfTheWeightOneHalfLifeLaterScoresTheSame() {
+        double older = scorer.contribution(new NoteCounterBuffer.Delta(6, 0, 0), now);
+        double newer = scorer.contribution(new NoteCounterBuffer.Delta(3, 0, 0), now.plus(TrendingScorer.HALF_LIFE));
+
+        assertThat(older).isCloseTo(newer, within(1e-9));
+    }
+
+    @Test
+    void emptyDeltaContributesNothing() {
+        assertThat(scorer.contribution(new NoteCounterBuffer.Delta(0, 0, 0), now)).isEqualTo(Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    void newNoteStartsWithItsOwnWeight() {
+        double initial = scorer.initialScore(now);
+        double tenViews = scorer.contribution(new NoteCounterBuffer.Delta(10, 0, 0), now);
+
+        assertThat(initial).isCloseTo(tenViews, within(1e-9));
+    }
+
+    @Test
+    void newerNoteOutranksAnUntouchedOlderOne() {
+        double older = scorer.initialScore(now);
+        double newer = scorer.initialScore(now.plusSeconds(1));
+
+        assertThat(newer).isGreaterThan(older);
+    }
+}
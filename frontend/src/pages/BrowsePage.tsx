@@ -12,7 +12,7 @@ import {
 import { api } from '@/services/api.ts';
 import NoteCard from '@/components/notes/NoteCard.tsx';
 import { useAuth } from '@/context/AuthContext.tsx';
-import type { Department, Note, ApiResponse, PageResponse } from '@/types';
+import type { Department, Note, ApiResponse, SliceResponse } from '@/types';
 
 export default function BrowsePage() {
     const [searchParams, setSearchParams] = useSearchParams();
@@ -24,7 +24,9 @@ export default function BrowsePage() {
     const sort = searchParams.get('sort') || 'recent';
     const departmentId = searchParams.get('department');
     const noteType = searchParams.get('type');
-    const page = parseInt(searchParams.get('page') || '0');
+    // Cursors of the pages visited so far; the last one is the current page
+    const [cursors, setCursors] = useState<string[]>([]);
+    const cursor = cursors[cursors.length - 1];
 
     const { data: departments } = useQuery({
         queryKey: ['departments', schoolId],
@@ -36,17 +38,17 @@ export default function BrowsePage() {
     });
 
     const { data: notesData, isLoading } = useQuery({
-        queryKey: ['notes', schoolId, sort, departmentId, noteType, page],
+        queryKey: ['notes', schoolId, sort, departmentId, noteType, cursor],
         queryFn: async () => {
             let url = sort === 'trending'
-                ? `/notes/trending?schoolId=${schoolId}&page=${page}&size=12`
-                : `/notes/recent?schoolId=${schoolId}&page=${page}&size=12`;
+                ? `/notes/feed/trending?schoolId=${schoolId}`
+                : `/notes/feed/recent?schoolId=${schoolId}`;
 
             if (noteType) {
-                url = `/notes/by-type?schoolId=${schoolId}&type=${noteType}&page=${page}&size=12`;
+                url = `/notes/feed/by-type?schoolId=${schoolId}&type=${noteType}`;
             }
 
-            const res = await api.get<ApiResponse<PageResponse<Note>>>(url);
+            const res = await api.get<ApiResponse<SliceResponse<Note>>>(url, { params: { cursor, size: 12 } });
 
             return res.data.data;
         },
@@ -61,8 +63,7 @@ export default function BrowsePage() {
             newParams.delete(key);
         }
 
-        newParams.set('page', '0');
-
+        setCursors([]);
         setSearchParams(newParams);
     };
 
@@ -246,21 +247,21 @@ export default function BrowsePage() {
                                 </div>
 
                                 {/* Pagination */}
-                                {notesData && notesData.totalPages > 1 && (
+                                {notesData && (cursors.length > 0 || notesData.hasNext) && (
                                     <div className="flex justify-center items-center gap-2 mt-8">
                                         <button
-                                            onClick={() => updateFilter('page', String(page - 1))}
-                                            disabled={notesData.first}
+                                            onClick={() => setCursors((prev) => prev.slice(0, -1))}
+                                            disabled={cursors.length === 0}
                                             className="px-4 py-2 rounded-lg border border-border disabled:opacity-50 disabled:cursor-not-allowed hover:border-neon-cyan/50 transition-colors"
                                         >
                                             Previous
                                         </button>
                                         <span className="px-4 py-2 text-muted-foreground">
-                      Page {page + 1} of {notesData.totalPages}
+                      Page {cursors.length + 1}
                     </span>
                                         <button
-                                            onClick={() => updateFilter('page', String(page + 1))}
-                                            disabled={notesData.last}
+                                            onClick={() => setCursors((prev) => [...prev, notesData.nextCursor ?? ''])}
+                                            disabled={!notesData.hasNext}
                                             className="px-4 py-2 rounded-lg border border-border disabled:opacity-50 disabled:cursor-not-allowed hover:border-neon-cyan/50 transition-colors"
                                         >
                                             Next
@@ -14,7 +14,7 @@ import {
 import { api } from '@/services/api.ts';
 import NoteCard from '@/components/notes/NoteCard.tsx';
 import { useAuth } from '@/context/AuthContext.tsx';
-import type { Note, ApiResponse, PageResponse } from '@/types';
+import type { Note, ApiResponse, SliceResponse } from '@/types';
 
 export default function HomePage() {
     const { user, isAuthenticated } = useAuth();
@@ -23,7 +23,7 @@ export default function HomePage() {
     const { data: trendingNotes } = useQuery({
         queryKey: ['trending-notes', schoolId],
         queryFn: async () => {
-            const res = await api.get<ApiResponse<PageResponse<Note>>>(`/notes/trending?schoolId=${schoolId}&size=6`);
+            const res = await api.get<ApiResponse<SliceResponse<Note>>>(`/notes/feed/trending?schoolId=${schoolId}&size=6`);
 
             return res.data.data.content;
         },
@@ -33,7 +33,7 @@ export default function HomePage() {
     const { data: recentNotes } = useQuery({
         queryKey: ['recent-notes', schoolId],
         queryFn: async () => {
-            const res = await api.get<ApiResponse<PageResponse<Note>>>(`/notes/recent?schoolId=${schoolId}&size=6`);
+            const res = await api.get<ApiResponse<SliceResponse<Note>>>(`/notes/feed/recent?schoolId=${schoolId}&size=6`);
 
             return res.data.data.content;
         },
@@ -8,11 +8,20 @@ import {
     Check,
     AlertCircle
 } from 'lucide-react';
-import { api } from '@/services/api.ts';
+import { api, noteApi } from '@/services/api.ts';
 import { useAuth } from '@/context/AuthContext.tsx';
 import type { Course, CourseSession, ApiResponse, NoteType } from '@/types';
 import { NOTE_TYPE_LABELS } from '@/types';
 
+interface NoteUploadData {
+    title: string;
+    description?: string;
+    type: NoteType;
+    courseSessionId: number;
+    weekLabel?: string;
+    tags?: string[];
+}
+
 export default function UploadPage() {
     const navigate = useNavigate();
     const { user } = useAuth();
@@ -51,11 +60,34 @@ export default function UploadPage() {
     });
 
     const uploadMutation = useMutation({
-        mutationFn: async (data: FormData) => {
-            const res = await api.post('/notes', data, {
-                headers: { 'Content-Type': 'multipart/form-data' },
+        mutationFn: async ({ file, note }: { file: File; note: NoteUploadData }) => {
+            const digest = await crypto.subtle.digest('SHA-256', await file.arrayBuffer());
+            const sha256 = Array.from(new Uint8Array(digest))
+                .map(b => b.toString(16).padStart(2, '0'))
+                .join('');
+
+            const upload = {
+                fileName: file.name,
+                contentType: file.type,
+                fileSize: file.size,
+                sha256,
+            };
+
+            // The file goes straight to storage; the API only signs and verifies it
+            const ticket = (await noteApi.createUpload(upload)).data.data;
+
+            const put = await fetch(ticket.uploadUrl, {
+                method: 'PUT',
+                headers: ticket.headers,
+                body: file,
             });
 
+            if (!put.ok) {
+                throw new Error('Upload to storage failed');
+            }
+
+            const res = await noteApi.completeUpload({ uploadKey: ticket.uploadKey, file: upload, note });
+
             return res.data;
         },
         onSuccess: (data) => {
@@ -122,10 +154,7 @@ export default function UploadPage() {
             return;
         }
 
-        const data = new FormData();
-        data.append('file', file);
-
-        const noteData = {
+        const note: NoteUploadData = {
             title: formData.title,
             description: formData.description || undefined,
             type: formData.type,
@@ -134,9 +163,7 @@ export default function UploadPage() {
             tags: formData.tags ? formData.tags.split(',').map(t => t.trim()).filter(Boolean) : undefined,
         };
 
-        data.append('data', new Blob([JSON.stringify(noteData)], { type: 'application/json' }));
-
-        uploadMutation.mutate(data);
+        uploadMutation.mutate({ file, note });
     };
 
     const noteTypes: NoteType[] = [
@@ -137,6 +137,22 @@ export const noteApi = {
             headers: { 'Content-Type': 'multipart/form-data' },
         }),
 
+    createUpload: (data: { fileName: string; contentType: string; fileSize: number; sha256: string }) =>
+        api.post('/notes/uploads', data),
+
+    completeUpload: (data: {
+        uploadKey: string;
+        file: { fileName: string; contentType: string; fileSize: number; sha256: string };
+        note: {
+            title: string;
+            description?: string;
+            type: string;
+            courseSessionId: number;
+            weekLabel?: string;
+            tags?: string[];
+        };
+    }) => api.post('/notes/uploads/complete', data),
+
     getById: (id: number) => api.get(`/notes/${id}`),
 
     getByCourseSession: (courseSessionId: number, page = 0, size = 20) =>
@@ -157,6 +173,21 @@ export const noteApi = {
     getMyNotes: (page = 0, size = 20) =>
         api.get('/notes/my-notes', { params: { page, size } }),
 
+    getCourseSessionFeed: (courseSessionId: number, cursor?: string, size = 20) =>
+        api.get(`/notes/feed/course-session/${courseSessionId}`, { params: { cursor, size } }),
+
+    getTrendingFeed: (schoolId: number, cursor?: string, size = 20) =>
+        api.get('/notes/feed/trending', { params: { schoolId, cursor, size } }),
+
+    getRecentFeed: (schoolId: number, cursor?: string, size = 20) =>
+        api.get('/notes/feed/recent', { params: { schoolId, cursor, size } }),
+
+    getTypeFeed: (schoolId: number, type: string, cursor?: string, size = 20) =>
+        api.get('/notes/feed/by-type', { params: { schoolId, type, cursor, size } }),
+
+    getMyNotesFeed: (cursor?: string, size = 20) =>
+        api.get('/notes/feed/my-notes', { params: { cursor, size } }),
+
     update: (id: number, data: { title?: string; description?: string; type?: string; tags?: string[] }) =>
         api.patch(`/notes/${id}`, data),
 
@@ -175,6 +206,9 @@ export const voteApi = {
     removeVote: (noteId: number) => api.delete(`/notes/${noteId}/vote`),
 
     getMyVote: (noteId: number) => api.get(`/notes/${noteId}/my-vote`),
+
+    getMyVotes: (noteIds: number[]) =>
+        api.get('/notes/my-votes', { params: { noteIds: noteIds.join(',') } }),
 };
 
 export const reportApi = {
@@ -15,6 +15,13 @@ export interface PageResponse<T> {
     last: boolean;
 }
 
+export interface SliceResponse<T> {
+    content: T[];
+    size: number;
+    hasNext: boolean;
+    nextCursor?: string;
+}
+
 export interface User {
     id: number;
     email: string;
@@ -143,6 +150,7 @@ export interface Note {
     mimeType: string;
     originalFileName?: string;
     thumbnailUrl?: string;
+    previewUrl?: string;
     processingStatus: ProcessingStatus;
     weekLabel?: string;
     courseSessionId: number;
@@ -158,6 +166,7 @@ export interface Note {
     downloadCount: number;
     averageRating: number;
     voteCount: number;
+    myVote?: number;
     createdAt: string;
     updatedAt: string;
 }